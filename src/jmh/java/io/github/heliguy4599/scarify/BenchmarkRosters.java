@@ -0,0 +1,28 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.HashMap;
+import java.util.Random;
+
+// Synthetic rosters shared by the benchmarks. Everything is seeded, so runs are comparable.
+public class BenchmarkRosters {
+	public static final long SEED = 4599L;
+
+	public static String playerName(int i) {
+		return "Player" + i;
+	}
+
+	// A config with rosterSize players, every fourth one with a distance override
+	public static ConfigFile createConfig(int rosterSize) {
+		final ConfigFile configFile = new ConfigFile();
+		configFile.getSectionData("");
+		final Random random = new Random(SEED);
+		for (int i = 0; i < rosterSize; i++) {
+			final HashMap<String, Object> data = new HashMap<>();
+			if (i % 4 == 0) {
+				data.put("distanceOverride", 8.0 + random.nextInt(64));
+			}
+			configFile.setSectionData(playerName(i), data);
+		}
+		return configFile;
+	}
+}
@@ -0,0 +1,68 @@
+package io.github.heliguy4599.scarify;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Loading, serializing and saving the config at different roster sizes
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigFileBenchmark {
+	@Param({"10", "1000", "10000", "100000"})
+	public int rosterSize;
+
+	private ConfigFile configFile;
+	private Path directory;
+	private Path loadPath;
+	private Path savePath;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		configFile = BenchmarkRosters.createConfig(rosterSize);
+		directory = Files.createTempDirectory("scarify-jmh");
+		loadPath = directory.resolve("load.cfg");
+		savePath = directory.resolve("save.cfg");
+		configFile.saveToFile(loadPath);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(loadPath);
+		Files.deleteIfExists(savePath);
+		Files.deleteIfExists(directory);
+	}
+
+	@Benchmark
+	public ConfigFile loadFromFile() {
+		return ConfigFile.loadFromFile(loadPath, true);
+	}
+
+	@Benchmark
+	public String serialize() {
+		return configFile.toString();
+	}
+
+	@Benchmark
+	public boolean saveToFile() {
+		return configFile.saveToFile(savePath);
+	}
+}
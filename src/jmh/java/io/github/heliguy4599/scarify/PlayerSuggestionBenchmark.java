@@ -0,0 +1,77 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.context.StringRange;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import net.minecraft.server.command.ServerCommandSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Tab-completing roster names. There's no server, so only roster entries are suggested.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerSuggestionBenchmark {
+	private static final String COMMAND = "scarify view ";
+
+	@Param({"10", "1000", "20000"})
+	public int rosterSize;
+
+	// What's been typed so far, "none" for an empty argument
+	@Param({"none", "Player12"})
+	public String prefix;
+	private String input;
+
+	private PlayerSuggestion suggestion;
+	private PlayerSuggestion overrideSuggestion;
+	private CommandContext<ServerCommandSource> context;
+
+	@Setup
+	public void setup() {
+		final ConfigFile configFile = BenchmarkRosters.createConfig(rosterSize);
+		ScaryRoster.publish(ScaryRoster.compile(configFile, List.of()));
+		suggestion = new PlayerSuggestion().searchInRoster();
+		overrideSuggestion = new PlayerSuggestion().searchInRoster().withDistanceOverride();
+		input = COMMAND + (prefix.equals("none") ? "" : prefix);
+		context = new CommandContext<>(
+			null,
+			input,
+			Map.of(),
+			null,
+			null,
+			List.of(),
+			StringRange.at(0),
+			null,
+			null,
+			false
+		);
+	}
+
+	@Benchmark
+	public Suggestions suggestRoster() throws CommandSyntaxException {
+		return suggestion.getSuggestions(context, new SuggestionsBuilder(input, COMMAND.length())).join();
+	}
+
+	@Benchmark
+	public Suggestions suggestOverrides() throws CommandSyntaxException {
+		return overrideSuggestion.getSuggestions(context, new SuggestionsBuilder(input, COMMAND.length())).join();
+	}
+}
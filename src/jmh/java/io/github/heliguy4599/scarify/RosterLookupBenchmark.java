@@ -0,0 +1,65 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Looking players up in the config, and in the compiled roster goals read instead
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RosterLookupBenchmark {
+	@Param({"10", "1000", "100000"})
+	public int rosterSize;
+
+	private ConfigFile configFile;
+	private ScaryRoster roster;
+	private String[] names;
+	private int next = 0;
+
+	@Setup
+	public void setup() {
+		configFile = BenchmarkRosters.createConfig(rosterSize);
+		roster = ScaryRoster.compile(configFile, List.of());
+		// Half the lookups miss, like players that aren't on the roster
+		names = new String[1024];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = BenchmarkRosters.playerName(i % 2 == 0 ? i % rosterSize : rosterSize + i);
+		}
+	}
+
+	private String nextName() {
+		next = (next + 1) & (names.length - 1);
+		return names[next];
+	}
+
+	@Benchmark
+	public boolean sectionNamesContains() {
+		return configFile.getSectionNames().contains(nextName());
+	}
+
+	@Benchmark
+	public HashMap<String, Object> findSectionData() {
+		return configFile.findSectionData(nextName());
+	}
+
+	@Benchmark
+	public ScaryRoster.Entry compiledRosterByName() {
+		return roster.get(nextName());
+	}
+}
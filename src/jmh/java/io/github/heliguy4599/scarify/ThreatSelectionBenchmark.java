@@ -0,0 +1,87 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Picking the nearest scary player for every mob, against synthetic player and mob positions.
+// Positions are spread over spread x spread blocks, so larger spreads leave most mobs far from every player.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThreatSelectionBenchmark {
+	private static final int MOB_COUNT = 1000;
+	private static final double FOLLOW_RANGE = 16.0;
+
+	@Param({"1", "10", "80", "150"})
+	public int playerCount;
+
+	@Param({"256", "4096"})
+	public int spread;
+
+	private final ThreatIndex index = new ThreatIndex();
+	private double[] playerPositions;
+	private double[] playerOverrides;
+	private final double[] mobPositions = new double[MOB_COUNT * 3];
+	private final ThreatIndex.Visibility alwaysVisible = i -> VisibilityCache.Result.VISIBLE;
+
+	@Setup
+	public void setup() {
+		final Random random = new Random(BenchmarkRosters.SEED);
+		playerPositions = new double[playerCount * 3];
+		playerOverrides = new double[playerCount];
+		for (int i = 0; i < playerCount; i++) {
+			playerPositions[i * 3] = random.nextDouble() * spread;
+			playerPositions[i * 3 + 1] = 64 + random.nextDouble() * 8;
+			playerPositions[i * 3 + 2] = random.nextDouble() * spread;
+			playerOverrides[i] = i % 4 == 0 ? 8.0 + random.nextInt(32) : Double.NaN;
+		}
+		for (int i = 0; i < MOB_COUNT; i++) {
+			mobPositions[i * 3] = random.nextDouble() * spread;
+			mobPositions[i * 3 + 1] = 64 + random.nextDouble() * 8;
+			mobPositions[i * 3 + 2] = random.nextDouble() * spread;
+		}
+		rebuild();
+	}
+
+	// What the world does once per tick
+	@Benchmark
+	public int rebuild() {
+		index.clear();
+		for (int i = 0; i < playerCount; i++) {
+			index.add(playerPositions[i * 3], playerPositions[i * 3 + 1], playerPositions[i * 3 + 2], playerOverrides[i], 1.0);
+		}
+		return index.size();
+	}
+
+	// What every mob does when it's evaluated, reported per mob
+	@Benchmark
+	@OperationsPerInvocation(MOB_COUNT)
+	public void findNearest(Blackhole blackhole) {
+		for (int i = 0; i < MOB_COUNT; i++) {
+			blackhole.consume(index.findNearest(
+				mobPositions[i * 3],
+				mobPositions[i * 3 + 1],
+				mobPositions[i * 3 + 2],
+				FOLLOW_RANGE,
+				alwaysVisible
+			));
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package io.github.heliguy4599.scarify;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.jetbrains.annotations.Nullable;
+
+// The binary roster mode, turned on with rosterFormat="binary" in the config's global section.
+// Players live in a memory-mapped roster file next to the config, and the config only holds the changes made since
+// the file was last written. Once enough of them pile up, they're folded into a new file and dropped from the config.
+public class BinaryRosterStorage {
+	public static final String FORMAT_KEY = "rosterFormat";
+	public static final String BINARY_FORMAT = "binary";
+	// Changed players the config may hold before the roster file is written again
+	private static final int COMPACT_THRESHOLD = 1024;
+
+	private final Path path;
+	@Nullable
+	private MappedRoster base;
+	// Cleared when the roster file can't be replaced, so every change after that doesn't try again
+	private boolean writable = true;
+	// Players left in the config by the last compaction
+	private int keptPlayers = 0;
+	// Set while a roster file is being written in the background
+	private boolean compacting = false;
+
+	public BinaryRosterStorage(Path path) {
+		this.path = path;
+	}
+
+	// scarify.roster next to scarify.cfg
+	public static Path pathFor(Path configPath) {
+		final String fileName = configPath.getFileName().toString();
+		final int dot = fileName.lastIndexOf('.');
+		return configPath.resolveSibling((dot > 0 ? fileName.substring(0, dot) : fileName) + ".roster");
+	}
+
+	// The rosterFormat setting, "text" when there isn't one
+	public static String getFormat(ConfigFile configFile) {
+		return configFile.findString("", FORMAT_KEY, "text");
+	}
+
+	public static boolean isEnabled(ConfigFile configFile) {
+		return BINARY_FORMAT.equals(getFormat(configFile));
+	}
+
+	// Maps the roster file if there is one. Only the header is read, however big it is.
+	public void open() {
+		if (!Files.isRegularFile(path)) {
+			return;
+		}
+		try {
+			base = MappedRoster.open(path);
+		} catch (IOException e) {
+			Scarify.LOGGER.error("Failed to open the Scarify roster file " + path.getFileName() + ", starting from the config alone", e);
+		}
+	}
+
+	@Nullable
+	public MappedRoster getBase() {
+		return base;
+	}
+
+	// Without a roster file yet, any players in the config are converted into one
+	public boolean needsCompaction(ConfigFile configFile) {
+		final var sections = configFile.getSectionNames();
+		final int changedPlayers = sections.size() - (sections.contains("") ? 1 : 0);
+		if (!writable || compacting) {
+			return false;
+		}
+		return base == null ? changedPlayers > 0 : changedPlayers - keptPlayers >= COMPACT_THRESHOLD;
+	}
+
+	// Writes the whole roster as the new roster file, then drops the changes it now holds from the config.
+	// The config still has to be saved afterwards. Until it is, the old changes replay over the new file to the same result.
+	// Used at startup, before there's a server to hand the result back to.
+	public boolean compact(ScaryRoster roster, ConfigFile configFile) {
+		final Map<String, Map<String, Object>> written = copySections(configFile);
+		final MappedRoster newBase = writeFile(roster);
+		if (newBase == null) {
+			writable = false;
+			return false;
+		}
+		finishCompaction(newBase, roster, configFile, written);
+		return true;
+	}
+
+	// Like compact(), but the file is written on the writer and only swapped in back on the server thread, which then runs onCompacted.
+	// Changes made to the config while the file is being written aren't in it, so they stay in the config.
+	public void compactInBackground(ScaryRoster roster, ConfigFile configFile, Executor writer, Executor server, Runnable onCompacted) {
+		compacting = true;
+		final Map<String, Map<String, Object>> written = copySections(configFile);
+		CompletableFuture.supplyAsync(() -> writeFile(roster), writer).thenAcceptAsync(newBase -> {
+			compacting = false;
+			if (newBase == null) {
+				writable = false;
+				return;
+			}
+			finishCompaction(newBase, roster, configFile, written);
+			onCompacted.run();
+		}, server);
+	}
+
+	// The config's player sections as they are when the roster file is written from them
+	private static Map<String, Map<String, Object>> copySections(ConfigFile configFile) {
+		final Map<String, Map<String, Object>> sections = new HashMap<>();
+		for (String section : configFile.getSectionNames()) {
+			if (!section.isEmpty()) {
+				sections.put(section, new HashMap<>(configFile.findSectionData(section)));
+			}
+		}
+		return sections;
+	}
+
+	// Writes and maps the new roster file, or returns null if it couldn't be
+	@Nullable
+	private MappedRoster writeFile(ScaryRoster roster) {
+		final List<ScaryRoster.Entry> entries = new ArrayList<>(roster.size());
+		roster.forEach(entries::add);
+		final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			MappedRoster.write(tempPath, entries);
+			try {
+				Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+			Scarify.LOGGER.info("Wrote " + entries.size() + " players to " + path.getFileName());
+			return MappedRoster.open(path);
+		} catch (IOException e) {
+			// Windows won't replace a file that's mapped, so there the changes stay in the config until the next start
+			Scarify.LOGGER.warn("Failed to write the Scarify roster file " + path.getFileName() + ", keeping changes in the config", e);
+			return null;
+		}
+	}
+
+	private void finishCompaction(MappedRoster newBase, ScaryRoster roster, ConfigFile configFile, Map<String, Map<String, Object>> written) {
+		// Rosters already handed out keep reading the old mapping, which stays valid
+		base = newBase;
+		keptPlayers = 0;
+		for (Map.Entry<String, Map<String, Object>> section : written.entrySet()) {
+			final String name = section.getKey();
+			final var data = configFile.findSectionData(name);
+			if (data == null && newBase.find(name) >= 0) {
+				// Removed while the file was written, which deletes a player the old file didn't have outright
+				final HashMap<String, Object> removed = new HashMap<>();
+				removed.put(ConfigMutation.REMOVED_KEY, true);
+				configFile.setSectionData(name, removed);
+				continue;
+			}
+			if (!Objects.equals(data, section.getValue())) {
+				// Changed since the file was written, so the file doesn't have it yet
+				continue;
+			}
+			// The file has no room for per-dimension overrides, so players with any keep their section
+			final var entry = roster.get(name);
+			if (entry != null && !entry.dimensionOverrides.isEmpty()) {
+				keptPlayers++;
+			} else {
+				configFile.deleteSection(name);
+			}
+		}
+	}
+
+	// Turns binary mode back off: every player in the roster file goes back into the config, and the file is deleted
+	public static void unpack(Path path, ConfigFile configFile, Path configPath) {
+		if (!Files.isRegularFile(path)) {
+			return;
+		}
+		final MappedRoster base;
+		try {
+			base = MappedRoster.open(path);
+		} catch (IOException e) {
+			Scarify.LOGGER.error("Failed to open the Scarify roster file " + path.getFileName() + " to convert it back", e);
+			return;
+		}
+
+		final ScaryRoster roster = ScaryRoster.compile(configFile, base, List.of());
+		for (String section : new ArrayList<>(configFile.getSectionNames())) {
+			if (!section.isEmpty()) {
+				configFile.deleteSection(section);
+			}
+		}
+		roster.forEach(entry -> configFile.setSectionData(entry.name, entry.toSectionData()));
+		if (!configFile.saveToFile(configPath)) {
+			return;
+		}
+		try {
+			Files.delete(path);
+		} catch (IOException e) {
+			Scarify.LOGGER.warn("Failed to delete the converted Scarify roster file " + path.getFileName(), e);
+		}
+		Scarify.LOGGER.info("Converted " + roster.size() + " players from " + path.getFileName() + " back into " + configPath.getFileName());
+	}
+}
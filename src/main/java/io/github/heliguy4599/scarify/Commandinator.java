@@ -1,18 +1,38 @@
 package io.github.heliguy4599.scarify;
 
+import com.mojang.authlib.GameProfile;
 import com.mojang.brigadier.arguments.DoubleArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
 import com.mojang.brigadier.context.CommandContext;
 import com.mojang.brigadier.exceptions.CommandSyntaxException;
 import com.mojang.brigadier.exceptions.SimpleCommandExceptionType;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.minecraft.command.argument.DimensionArgumentType;
+import net.minecraft.command.argument.GameProfileArgumentType;
 import net.minecraft.server.command.CommandManager;
 import net.minecraft.server.command.ServerCommandSource;
 import net.minecraft.text.Text;
+import net.minecraft.util.Util;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class Commandinator {
+    private static final String ROSTER_FILE_EXTENSION = ".cfg";
+    // Set in the global section of exported roster files
+    private static final String ROSTER_EXPORT_KEY = "scarifyRosterExport";
+
     public final ConfigFile configFile;
 
     public Commandinator(ConfigFile _configFile) {
@@ -33,7 +53,7 @@ public class Commandinator {
                 CommandManager.literal("add")
                 .then(
                     CommandManager.argument("player_name", StringArgumentType.string())
-                    .suggests(new PlayerSuggestion().searchInWorld().excludeConfigEntries(configFile))
+                    .suggests(new PlayerSuggestion().searchInWorld().excludeRosterEntries())
                     .executes(this::addPlayer)
                 )
             )
@@ -51,13 +71,13 @@ public class Commandinator {
                 CommandManager.literal("remove")
                 .then(
                     CommandManager.argument("player_name", StringArgumentType.string())
-                    .suggests(new PlayerSuggestion().searchInConfigFile(configFile))
+                    .suggests(new PlayerSuggestion().searchInRoster())
                     .executes(this::removePlayer)
                 )
             )
         ));
 
-        // Command: /scarify distanceOverride set <player> <absolute block distance>
+        // Command: /scarify distanceOverride set <player> <absolute block distance> [dimension]
         CommandRegistrationCallback.EVENT.register((
             commandDispatcher,
             commandRegistryAccess,
@@ -71,17 +91,21 @@ public class Commandinator {
                     CommandManager.literal("set")
                     .then(
                         CommandManager.argument("player_name", StringArgumentType.string())
-                        .suggests(new PlayerSuggestion().searchInWorld().searchInConfigFile(configFile))
+                        .suggests(new PlayerSuggestion().searchInWorld().searchInRoster())
                         .then(
                             CommandManager.argument("block_distance", DoubleArgumentType.doubleArg())
-                            .executes(this::overrideDistance)
+                            .executes(context -> overrideDistance(context, null))
+                            .then(
+                                CommandManager.argument("dimension", DimensionArgumentType.dimension())
+                                .executes(context -> overrideDistance(context, getDimension(context)))
+                            )
                         )
                     )
                 )
             )
         ));
 
-        // Command: /scarify distanceOverride reset <player>
+        // Command: /scarify distanceOverride reset <player> [dimension]
         CommandRegistrationCallback.EVENT.register((
             commandDispatcher,
             commandRegistryAccess,
@@ -95,13 +119,91 @@ public class Commandinator {
                     CommandManager.literal("reset")
                     .then(
                         CommandManager.argument("player_name", StringArgumentType.string())
-                        .suggests(new PlayerSuggestion().searchInConfigFile(configFile).checkForKey("distanceOverride"))
-                        .executes(this::resetOverrideDistance)
+                        .suggests(new PlayerSuggestion().searchInRoster().withDistanceOverride())
+                        .executes(context -> resetOverrideDistance(context, null))
+                        .then(
+                            CommandManager.argument("dimension", DimensionArgumentType.dimension())
+                            .executes(context -> resetOverrideDistance(context, getDimension(context)))
+                        )
                     )
                 )
             )
         ));
 
+        // Command: /scarify bulk add|remove <players>
+        // Command: /scarify bulk distanceOverride set <players> <absolute block distance>
+        // Command: /scarify bulk distanceOverride reset <players>
+        CommandRegistrationCallback.EVENT.register((
+            commandDispatcher,
+            commandRegistryAccess,
+            registrationEnvironment
+        ) -> commandDispatcher.register(
+            CommandManager.literal("scarify")
+            .requires(source -> source.hasPermissionLevel(1))
+            .then(
+                CommandManager.literal("bulk")
+                .then(
+                    CommandManager.literal("add")
+                    .then(
+                        CommandManager.argument("players", GameProfileArgumentType.gameProfile())
+                        .executes(this::bulkAdd)
+                    )
+                )
+                .then(
+                    CommandManager.literal("remove")
+                    .then(
+                        CommandManager.argument("players", GameProfileArgumentType.gameProfile())
+                        .executes(this::bulkRemove)
+                    )
+                )
+                .then(
+                    CommandManager.literal("distanceOverride")
+                    .then(
+                        CommandManager.literal("set")
+                        .then(
+                            CommandManager.argument("players", GameProfileArgumentType.gameProfile())
+                            .then(
+                                CommandManager.argument("block_distance", DoubleArgumentType.doubleArg())
+                                .executes(this::bulkOverrideDistance)
+                            )
+                        )
+                    )
+                    .then(
+                        CommandManager.literal("reset")
+                        .then(
+                            CommandManager.argument("players", GameProfileArgumentType.gameProfile())
+                            .executes(this::bulkResetOverrideDistance)
+                        )
+                    )
+                )
+            )
+        ));
+
+        // Command: /scarify import|export <file name>
+        // These read and write files on the server, so they're kept to server operators
+        CommandRegistrationCallback.EVENT.register((
+            commandDispatcher,
+            commandRegistryAccess,
+            registrationEnvironment
+        ) -> commandDispatcher.register(
+            CommandManager.literal("scarify")
+            .requires(source -> source.hasPermissionLevel(4))
+            .then(
+                CommandManager.literal("import")
+                .then(
+                    CommandManager.argument("file_name", StringArgumentType.string())
+                    .executes(this::importRoster)
+                )
+            )
+            .then(
+                CommandManager.literal("export")
+                .then(
+                    CommandManager.argument("file_name", StringArgumentType.string())
+                    .executes(this::exportRoster)
+                )
+            )
+        ));
+
         // Command: /scarify listAddedPlayers
         CommandRegistrationCallback.EVENT.register((
             commandDispatcher,
@@ -116,6 +218,37 @@ public class Commandinator {
             )
         ));
 
+        // Command: /scarify pathQueue
+        CommandRegistrationCallback.EVENT.register((
+            commandDispatcher,
+            commandRegistryAccess,
+            registrationEnvironment
+        ) -> commandDispatcher.register(
+            CommandManager.literal("scarify")
+            .requires(source -> source.hasPermissionLevel(1))
+            .then(
+                CommandManager.literal("pathQueue")
+                .executes(this::pathQueue)
+            )
+        ));
+
+        // Command: /scarify stats [reset|enable|disable]
+        CommandRegistrationCallback.EVENT.register((
+            commandDispatcher,
+            commandRegistryAccess,
+            registrationEnvironment
+        ) -> commandDispatcher.register(
+            CommandManager.literal("scarify")
+            .requires(source -> source.hasPermissionLevel(1))
+            .then(
+                CommandManager.literal("stats")
+                .executes(this::stats)
+                .then(CommandManager.literal("reset").executes(this::resetStats))
+                .then(CommandManager.literal("enable").executes(context -> setStatsEnabled(context, true)))
+                .then(CommandManager.literal("disable").executes(context -> setStatsEnabled(context, false)))
+            )
+        ));
+
         // Command: /scarify view <player name>
         CommandRegistrationCallback.EVENT.register((
             commandDispatcher,
@@ -128,24 +261,72 @@ public class Commandinator {
                 CommandManager.literal("view")
                 .then(
                     CommandManager.argument("player_name", StringArgumentType.string())
-                    .suggests(new PlayerSuggestion().searchInConfigFile(configFile))
+                    .suggests(new PlayerSuggestion().searchInRoster())
                     .executes(this::view)
                 )
             )
         ));
     }
 
+    // Applies a change to the config, saves it in the background and updates the roster goals read from
+    private void applyChange(CommandContext<ServerCommandSource> context, ConfigMutation mutation) {
+        applyChanges(context, List.of(mutation));
+    }
+
+    // Applies a batch of changes as one roster update and one write, however many players it touches
+    private void applyChanges(CommandContext<ServerCommandSource> context, List<ConfigMutation> mutations) {
+        if (mutations.isEmpty()) {
+            return;
+        }
+        final var server = context.getSource().getServer();
+        final ConfigFile rosterConfig = Scarify.getRosterConfig();
+        final Set<String> changedNames = new LinkedHashSet<>();
+        for (ConfigMutation mutation : mutations) {
+            mutation.applyTo(rosterConfig, Scarify.getRosterBase());
+            changedNames.add(mutation.playerName);
+        }
+        Scarify.recordChanges(server, mutations);
+        Scarify.refreshRoster(server, changedNames);
+    }
+
+    // Names of the players a selector or list of names picked, without repeats
+    private static Set<String> getPlayerNames(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        final Set<String> names = new LinkedHashSet<>();
+        for (GameProfile profile : GameProfileArgumentType.getProfileArgument(context, "players")) {
+            names.add(profile.getName());
+        }
+        return names;
+    }
+
+    // Checked against the roster rather than the config, which only holds recent changes in binary roster mode
+    private static boolean isAdded(String playerName) {
+        return ScaryRoster.get().get(playerName) != null;
+    }
+
+    private static boolean hasDistanceOverride(String playerName, @Nullable String dimension) {
+        final var entry = ScaryRoster.get().get(playerName);
+        return entry != null && entry.hasDistanceOverride(dimension);
+    }
+
+    // The dimension argument as a dimension id, like minecraft:the_nether
+    private static String getDimension(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        return DimensionArgumentType.getDimensionArgument(context, "dimension").getRegistryKey().getValue().toString();
+    }
+
+    private static String describeDimension(@Nullable String dimension) {
+        return dimension == null ? "" : " in " + dimension;
+    }
+
     // Command: /scarify add <player>
     public int addPlayer(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
         final String playerName = StringArgumentType.getString(context, "player_name");
 
-        // Find the player in the config file. Only needed for user feedback if player is already added
-        if (configFile.getSectionNames().contains(playerName)) {
+        // Find the player in the roster. Only needed for user feedback if player is already added
+        if (isAdded(playerName)) {
             throw new SimpleCommandExceptionType(Text.literal(playerName + " has already been added to Scarify")).create();
         }
 
-        configFile.setSectionData(playerName, new HashMap<>());
-        configFile.saveToFile(Scarify.MOD_CONFIG_PATH);
+        applyChange(context, ConfigMutation.add(playerName));
         context.getSource().sendFeedback(() -> Text.literal("[Scarify]: Made " + playerName + " scary!"), true);
         return 1;
     }
@@ -154,19 +335,19 @@ public class Commandinator {
     public int removePlayer(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
         final String playerName = StringArgumentType.getString(context, "player_name");
 
-        // Find the player in the config file. Only needed for user feedback if player is not added
-        if (!configFile.getSectionNames().contains(playerName)) {
+        // Find the player in the roster. Only needed for user feedback if player is not added
+        if (!isAdded(playerName)) {
             throw new SimpleCommandExceptionType(Text.literal(playerName + " has not been added to Scarify")).create();
         }
 
-        configFile.deleteSection(playerName);
-        configFile.saveToFile(Scarify.MOD_CONFIG_PATH);
+        applyChange(context, ConfigMutation.remove(playerName));
         context.getSource().sendFeedback(() -> Text.literal("[Scarify]: " + playerName + " is no longer scary"), true);
         return 1;
     }
 
-    // Command: /scarify distanceOverride set <player> <absolute block distance>
-    public int overrideDistance(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+    // Command: /scarify distanceOverride set <player> <absolute block distance> [dimension]
+    // Without a dimension the override applies in every dimension the player has no override of its own for
+    public int overrideDistance(CommandContext<ServerCommandSource> context, @Nullable String dimension) throws CommandSyntaxException {
         final String playerName = StringArgumentType.getString(context, "player_name");
 
         final double distance = DoubleArgumentType.getDouble(context, "block_distance");
@@ -174,42 +355,259 @@ public class Commandinator {
             throw new SimpleCommandExceptionType(Text.literal("Invalid distance amount. Distance must be greater than 0")).create();
         }
 
-        HashMap<String, Object> data = new HashMap<>();
-        data.put("distanceOverride", distance);
-        configFile.setSectionData(playerName, data);
-        configFile.saveToFile(Scarify.MOD_CONFIG_PATH);
-        context.getSource().sendFeedback(() -> Text.literal("[Scarify]: " + playerName + " now has a distance override of " + distance), true);
+        applyChange(context, ConfigMutation.setDistanceOverride(playerName, distance, dimension));
+        context.getSource().sendFeedback(() -> Text.literal(
+            "[Scarify]: " + playerName + " now has a distance override of " + distance + describeDimension(dimension)
+        ), true);
         return 1;
     }
 
-    // Command: /scarify distanceOverride reset <player>
-    public int resetOverrideDistance(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+    // Command: /scarify distanceOverride reset <player> [dimension]
+    public int resetOverrideDistance(CommandContext<ServerCommandSource> context, @Nullable String dimension) throws CommandSyntaxException {
         final String playerName = StringArgumentType.getString(context, "player_name");
 
-        // Find the player in the config file. Only needed for user feedback if player is not added
-        if (!configFile.getSectionNames().contains(playerName)) {
+        // Find the player in the roster. Only needed for user feedback if player is not added
+        if (!isAdded(playerName)) {
             throw new SimpleCommandExceptionType(Text.literal(playerName + " has not been added to Scarify")).create();
         }
 
         // Get the distanceOverride for the player. Only needed for user feedback if player has no override
-        if (!configFile.getSectionData(playerName).containsKey("distanceOverride")) {
-            throw new SimpleCommandExceptionType(Text.literal(playerName + " does not have a distance override set")).create();
+        if (!hasDistanceOverride(playerName, dimension)) {
+            throw new SimpleCommandExceptionType(Text.literal(playerName + " does not have a distance override set" + describeDimension(dimension))).create();
+        }
+
+        applyChange(context, ConfigMutation.resetDistanceOverride(playerName, dimension));
+        context.getSource().sendFeedback(() -> Text.literal(
+            "[Scarify]: " + playerName + " no longer has a distance override" + describeDimension(dimension)
+        ), true);
+        return 1;
+    }
+
+    // Command: /scarify bulk add <players>
+    public int bulkAdd(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        final Set<String> playerNames = getPlayerNames(context);
+        final var mutations = new ArrayList<ConfigMutation>();
+        for (String playerName : playerNames) {
+            if (!isAdded(playerName)) {
+                mutations.add(ConfigMutation.add(playerName));
+            }
+        }
+
+        applyChanges(context, mutations);
+        final int skipped = playerNames.size() - mutations.size();
+        context.getSource().sendFeedback(() -> Text.literal(
+            "[Scarify]: Made " + mutations.size() + " players scary" + (skipped > 0 ? ", " + skipped + " already were" : "")
+        ), true);
+        return mutations.size();
+    }
+
+    // Command: /scarify bulk remove <players>
+    public int bulkRemove(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        final Set<String> playerNames = getPlayerNames(context);
+        final var mutations = new ArrayList<ConfigMutation>();
+        for (String playerName : playerNames) {
+            if (isAdded(playerName)) {
+                mutations.add(ConfigMutation.remove(playerName));
+            }
         }
 
-        var sectionData = configFile.getSectionData(playerName);
-        sectionData.remove("distanceOverride");
-        configFile.saveToFile(Scarify.MOD_CONFIG_PATH);
-        context.getSource().sendFeedback(() -> Text.literal("[Scarify]: " + playerName + " no longer has a distance override"), true);
+        applyChanges(context, mutations);
+        final int skipped = playerNames.size() - mutations.size();
+        context.getSource().sendFeedback(() -> Text.literal(
+            "[Scarify]: " + mutations.size() + " players are no longer scary" + (skipped > 0 ? ", " + skipped + " were not added" : "")
+        ), true);
+        return mutations.size();
+    }
+
+    // Command: /scarify bulk distanceOverride set <players> <absolute block distance>
+    public int bulkOverrideDistance(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        final double distance = DoubleArgumentType.getDouble(context, "block_distance");
+        if (distance <= 0) {
+            throw new SimpleCommandExceptionType(Text.literal("Invalid distance amount. Distance must be greater than 0")).create();
+        }
+
+        final var mutations = new ArrayList<ConfigMutation>();
+        for (String playerName : getPlayerNames(context)) {
+            mutations.add(ConfigMutation.setDistanceOverride(playerName, distance));
+        }
+        applyChanges(context, mutations);
+        context.getSource().sendFeedback(() -> Text.literal(
+            "[Scarify]: " + mutations.size() + " players now have a distance override of " + distance
+        ), true);
+        return mutations.size();
+    }
+
+    // Command: /scarify bulk distanceOverride reset <players>
+    public int bulkResetOverrideDistance(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        final Set<String> playerNames = getPlayerNames(context);
+        final var mutations = new ArrayList<ConfigMutation>();
+        for (String playerName : playerNames) {
+            if (hasDistanceOverride(playerName, null)) {
+                mutations.add(ConfigMutation.resetDistanceOverride(playerName));
+            }
+        }
+
+        applyChanges(context, mutations);
+        final int skipped = playerNames.size() - mutations.size();
+        context.getSource().sendFeedback(() -> Text.literal(
+            "[Scarify]: " + mutations.size() + " players no longer have a distance override"
+            + (skipped > 0 ? ", " + skipped + " did not have one" : "")
+        ), true);
+        return mutations.size();
+    }
+
+    // Command: /scarify import <file name>
+    // Adds every player in the file, and gives them the file's distance override or none.
+    // Overrides for single dimensions in the file are set too. Other players are left alone.
+    public int importRoster(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        final String fileName = StringArgumentType.getString(context, "file_name");
+        final Path path = resolveRosterFile(fileName);
+        if (!Files.isRegularFile(path)) {
+            throw new SimpleCommandExceptionType(Text.literal("There is no roster file named " + path.getFileName() + " in the config/" + Scarify.MOD_ID + " folder")).create();
+        }
+
+        // Read and parse it off the server thread, then diff it against the roster as it is by then
+        final var source = context.getSource();
+        final var work = CompletableFuture.supplyAsync(() -> readRosterFile(path), Util.getIoWorkerExecutor()).thenAcceptAsync(imported -> {
+            final var mutations = new ArrayList<ConfigMutation>();
+            final int players = findImportChanges(imported, mutations);
+            if (players == 0) {
+                source.sendError(Text.literal("There are no players in " + path.getFileName()));
+                return;
+            }
+            applyChanges(context, mutations);
+            source.sendFeedback(() -> Text.literal(
+                "[Scarify]: Imported " + players + " players from " + path.getFileName() + ", " + mutations.size() + " of them changed"
+            ), true);
+        }, source.getServer());
+        reportFailure(work, source, "Failed to import the roster from " + path.getFileName());
         return 1;
     }
 
+    // Only runs on the IO worker. Unlike ConfigFile.loadFromFile, a file that can't be read is an error, not an empty roster.
+    private static ConfigFile readRosterFile(Path path) {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return ConfigFile.loadFromReader(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Logs and reports anything that went wrong in a roster file command's work, back on the server thread
+    private static void reportFailure(CompletableFuture<Void> work, ServerCommandSource source, String message) {
+        work.whenCompleteAsync((unused, error) -> {
+            if (error != null) {
+                Scarify.LOGGER.warn(message, error);
+                source.sendError(Text.literal(message));
+            }
+        }, source.getServer());
+    }
+
+    // Adds the changes importing the file makes to the roster to mutations, and returns how many players it has
+    private static int findImportChanges(ConfigFile imported, List<ConfigMutation> mutations) {
+        int players = 0;
+        for (String playerName : imported.getSectionNames()) {
+            if (playerName.isEmpty()) {
+                // The global section isn't a player
+                continue;
+            }
+            players++;
+            final var existing = ScaryRoster.get().get(playerName);
+            if (imported.findSectionData(playerName).get("distanceOverride") instanceof Number distance && distance.doubleValue() > 0) {
+                if (!(existing != null && existing.distanceOverride == distance.doubleValue())) {
+                    mutations.add(ConfigMutation.setDistanceOverride(playerName, distance.doubleValue()));
+                }
+            } else if (existing == null) {
+                mutations.add(ConfigMutation.add(playerName));
+            } else if (existing.hasDistanceOverride(null)) {
+                mutations.add(ConfigMutation.resetDistanceOverride(playerName));
+            }
+            for (var value : imported.findSectionData(playerName).entrySet()) {
+                final String prefix = ConfigMutation.DISTANCE_OVERRIDE_KEY + ".";
+                if (value.getKey().startsWith(prefix) && value.getValue() instanceof Number distance && distance.doubleValue() > 0) {
+                    final String dimension = value.getKey().substring(prefix.length());
+                    final Double current = existing == null ? null : existing.dimensionOverrides.get(dimension);
+                    if (current == null || current != distance.doubleValue()) {
+                        mutations.add(ConfigMutation.setDistanceOverride(playerName, distance.doubleValue(), dimension));
+                    }
+                }
+            }
+        }
+        return players;
+    }
+
+    // Command: /scarify export <file name>
+    public int exportRoster(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        final String fileName = StringArgumentType.getString(context, "file_name");
+        final Path path = resolveRosterFile(fileName);
+        // Only the players, not the global settings, and a mark so later exports know they may replace the file
+        final ConfigFile snapshot = new ConfigFile();
+        ScaryRoster.get().forEach(entry -> snapshot.setSectionData(entry.name, entry.toSectionData()));
+        final int players = snapshot.getSectionNames().size();
+        snapshot.setValue("", ROSTER_EXPORT_KEY, true);
+
+        // Write it off the server thread, and report back on it once it's done
+        final var source = context.getSource();
+        final var work = CompletableFuture.supplyAsync(() -> writeRosterFile(snapshot, path), Util.getIoWorkerExecutor()).thenAcceptAsync(result -> {
+            switch (result) {
+                case SAVED -> source.sendFeedback(() -> Text.literal("[Scarify]: Exported " + players + " players to " + path.getFileName()), true);
+                case NOT_A_ROSTER -> source.sendError(Text.literal(path.getFileName() + " wasn't exported by Scarify, so it won't be replaced"));
+                case FAILED -> source.sendError(Text.literal("Failed to export the roster to " + path.getFileName()));
+            }
+        }, source.getServer());
+        reportFailure(work, source, "Failed to export the roster to " + path.getFileName());
+        return players;
+    }
+
+    private enum ExportResult {
+        SAVED,
+        NOT_A_ROSTER,
+        FAILED
+    }
+
+    // Only runs on the IO worker. A file that's already there is only replaced if it's an earlier export.
+    private static ExportResult writeRosterFile(ConfigFile snapshot, Path path) {
+        if (Files.exists(path)) {
+            final var global = ConfigFile.loadFromFile(path, true).findSectionData("");
+            if (global == null || !Boolean.TRUE.equals(global.get(ROSTER_EXPORT_KEY))) {
+                return ExportResult.NOT_A_ROSTER;
+            }
+        }
+        try {
+            Files.createDirectories(path.getParent());
+        } catch (IOException e) {
+            return ExportResult.FAILED;
+        }
+        return snapshot.saveToFile(path) ? ExportResult.SAVED : ExportResult.FAILED;
+    }
+
+    // Roster files live in a folder of their own next to Scarify's config, so other mods' configs are out of reach.
+    // A name without the extension gets it added.
+    private static Path resolveRosterFile(String fileName) throws CommandSyntaxException {
+        final Path rosterDir = Scarify.MOD_CONFIG_PATH.toAbsolutePath().normalize().resolveSibling(Scarify.MOD_ID);
+        final String fullName = fileName.endsWith(ROSTER_FILE_EXTENSION) ? fileName : fileName + ROSTER_FILE_EXTENSION;
+        final Path path;
+        try {
+            path = rosterDir.resolve(fullName).normalize();
+        } catch (InvalidPathException e) {
+            throw new SimpleCommandExceptionType(Text.literal("Invalid file name: " + fileName)).create();
+        }
+        if (!rosterDir.equals(path.getParent())) {
+            throw new SimpleCommandExceptionType(Text.literal("Roster files must be directly in the config/" + Scarify.MOD_ID + " folder")).create();
+        }
+        return path;
+    }
+
     // Command: /scarify listAddedPlayers
     public int listPlayers(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
-        var playerNames = configFile.getSectionNames();
+        final NameIndex names = ScaryRoster.get().getNames();
+        final List<String> playerNames = new ArrayList<>(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            playerNames.add(names.getName(i));
+        }
         if (playerNames.isEmpty()) {
             context.getSource().sendFeedback(() -> Text.literal("[Scarify]: No players have been added"), false);
         }
-        playerNames.removeIf(String::isEmpty);
         context.getSource().sendFeedback(() -> Text.literal("[Scarify]: Added Players: " + playerNames), false);
         return 1;
     }
@@ -218,13 +616,87 @@ public class Commandinator {
     public int view(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
         final String playerName = StringArgumentType.getString(context, "player_name");
 
-        // Find the player in the config file. Only needed for user feedback if player is not added
-        if (!configFile.getSectionNames().contains(playerName)) {
+        // Find the player in the roster. Only needed for user feedback if player is not added
+        if (!isAdded(playerName)) {
             throw new SimpleCommandExceptionType(Text.literal(playerName + " has not been added to Scarify")).create();
         }
 
-        var data = configFile.getSectionData(playerName);
+        final var entry = ScaryRoster.get().get(playerName);
+        final var data = entry.toSectionData();
         context.getSource().sendFeedback(() -> Text.literal("[" + playerName + "]: " + data), false);
         return 1;
     }
+
+    // Command: /scarify pathQueue
+    public int pathQueue(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        final var source = context.getSource();
+        for (var world : source.getServer().getWorlds()) {
+            final var queue = ScarifyWorldState.get(world).fleePathQueue;
+            final int maxSearches = world.getGameRules().getInt(Scarify.PATH_BUDGET);
+            final int budgetMicros = world.getGameRules().getInt(Scarify.PATH_BUDGET_MICROS);
+            source.sendFeedback(() -> Text.literal(
+                "[Scarify]: " + world.getRegistryKey().getValue()
+                + ": " + queue.getLastSearches() + "/" + maxSearches + " path searches"
+                + " in " + queue.getLastNanos() / 1000 + "/" + budgetMicros + " microseconds last tick, "
+                + queue.getLastBacklog() + " waiting"
+            ), false);
+        }
+        return 1;
+    }
+
+    // Command: /scarify stats
+    public int stats(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        final var source = context.getSource();
+        if (!ScarifyStats.enabled) {
+            source.sendFeedback(() -> Text.literal("[Scarify]: Stats are disabled. Enable them with /scarify stats enable"), false);
+            return 1;
+        }
+
+        final StringBuilder outcomes = new StringBuilder();
+        for (var outcome : ScarifyStats.Outcome.values()) {
+            outcomes.append("\n  ").append(outcome.name().toLowerCase()).append(": ").append(ScarifyStats.getOutcomeCount(outcome));
+        }
+        source.sendFeedback(() -> Text.literal(
+            "[Scarify]: " + ScarifyStats.getEvaluations() + " flee evaluations" + outcomes
+            + "\n  player scans: " + ScarifyStats.getPlayerScans()
+            + "\n  raycasts: " + ScarifyStats.getRaycasts()
+            + "\n  path searches: " + ScarifyStats.getPathSearches()
+            + "\n  path repairs: " + ScarifyStats.getPathRepairs()
+        ), false);
+
+        for (var world : source.getServer().getWorlds()) {
+            final var state = ScarifyWorldState.get(world);
+            final var tickTimes = state.tickTimes;
+            if (tickTimes.getCount() == 0) {
+                continue;
+            }
+            source.sendFeedback(() -> Text.literal(
+                "[Scarify]: " + world.getRegistryKey().getValue() + (state.isArmed() ? " (armed)" : " (dormant)")
+                + ": " + tickTimes.getCount() + " ticks,"
+                + " mean " + tickTimes.getMeanNanos() / 1000 + " microseconds,"
+                + " p50 < " + tickTimes.getPercentileMicros(50) + ","
+                + " p99 < " + tickTimes.getPercentileMicros(99) + ","
+                + " max " + tickTimes.getMaxNanos() / 1000
+                + (state.fearPropagator.isEnabled() ? ", " + state.fearPropagator.getLastMarked() + " mobs marked last propagation" : "")
+            ), false);
+        }
+        return 1;
+    }
+
+    // Command: /scarify stats reset
+    public int resetStats(CommandContext<ServerCommandSource> context) throws CommandSyntaxException {
+        ScarifyStats.reset();
+        for (var world : context.getSource().getServer().getWorlds()) {
+            ScarifyWorldState.get(world).tickTimes.reset();
+        }
+        context.getSource().sendFeedback(() -> Text.literal("[Scarify]: Stats have been reset"), true);
+        return 1;
+    }
+
+    // Command: /scarify stats enable|disable
+    public int setStatsEnabled(CommandContext<ServerCommandSource> context, boolean enabled) {
+        ScarifyStats.enabled = enabled;
+        context.getSource().sendFeedback(() -> Text.literal("[Scarify]: Stats are now " + (enabled ? "enabled" : "disabled")), true);
+        return 1;
+    }
 }
@@ -1,15 +1,31 @@
 package io.github.heliguy4599.scarify;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 // INI-style config file, similar to Godot's ConfigFile class.
 // Thanks! Aaron Franke
 public class ConfigFile {
+	// Not Scarify.LOGGER, so the config can be used without initializing the mod (e.g. in benchmarks)
+	private static final Logger LOGGER = LoggerFactory.getLogger(Scarify.MOD_ID);
+
 	private HashMap<String, HashMap<String, Object>> _data;
 
 	// Section accessor functions.
@@ -26,6 +42,11 @@ public class ConfigFile {
 		return sectionData;
 	}
 
+	// Like getSectionData, but returns null instead of creating missing sections
+	public HashMap<String, Object> findSectionData(String section) {
+		return _data.get(section);
+	}
+
 	public void setSectionData(String section, HashMap<String, Object> data) {
 		_data.put(section, data);
 	}
@@ -54,6 +75,13 @@ public class ConfigFile {
 		return getValue(section, key, defaultValue).toString();
 	}
 
+	// Like getString, but leaves the config as it is when the key is missing, so the default isn't saved into it
+	public String findString(String section, String key, String defaultValue) {
+		final HashMap<String, Object> sectionData = findSectionData(section);
+		final Object value = sectionData == null ? null : sectionData.get(key);
+		return value == null ? defaultValue : value.toString();
+	}
+
 	public double getDouble(String section, String key, double defaultValue) {
 		Object value = getValue(section, key, defaultValue);
 		if (value instanceof Double valueDouble) {
@@ -64,6 +92,23 @@ public class ConfigFile {
 		return defaultValue;
 	}
 
+	public boolean getBoolean(String section, String key, boolean defaultValue) {
+		Object value = getValue(section, key, defaultValue);
+		if (value instanceof Boolean valueBoolean) {
+			return valueBoolean.booleanValue();
+		}
+		return defaultValue;
+	}
+
+	// Like getBoolean, but leaves the config as it is when the key is missing, so the default isn't saved into it
+	public boolean findBoolean(String section, String key, boolean defaultValue) {
+		final HashMap<String, Object> sectionData = findSectionData(section);
+		if (sectionData != null && sectionData.get(key) instanceof Boolean valueBoolean) {
+			return valueBoolean.booleanValue();
+		}
+		return defaultValue;
+	}
+
 	public int getInt(String section, String key, int defaultValue) {
 		Object value = getValue(section, key, defaultValue);
 		if (value instanceof Integer valueInteger) {
@@ -75,91 +120,167 @@ public class ConfigFile {
 	}
 
 	// File I/O functions.
-	private static ConfigFile loadFromLines(List<String> lines) {
+	// Parses the file in a single pass, one character at a time, reusing one line buffer for the whole file.
+	public static ConfigFile loadFromReader(Reader reader) throws IOException {
 		final ConfigFile configFile = new ConfigFile();
 		// Start with the global section.
 		HashMap<String, Object> currentSectionData = configFile.getSectionData("");
-		for (String line : lines) {
-			if (line.startsWith(";") || line.startsWith("#")) {
-				// Comment.
-				continue;
-			}
-			if (line.startsWith("[")) {
-				final String sectionName = line.substring(1, line.length() - 1);
-				currentSectionData = configFile.getSectionData(sectionName);
-			} else {
-				final String[] parts = line.split("=");
-				if (parts.length == 2) {
-					final String key = parts[0];
-					final String value = parts[1];
-					final char firstChar = value.charAt(0);
-					if (value.charAt(0) == '"') {
-						// String value (need to strip quotes).
-						currentSectionData.put(key, value.substring(1, value.length() - 1));
-					} else if (value.equals("true")) {
-						currentSectionData.put(key, Boolean.TRUE);
-					} else if (value.equals("false")) {
-						currentSectionData.put(key, Boolean.FALSE);
-					} else if (value.contains(".")) {
-						try {
-							currentSectionData.put(key, Double.parseDouble(value));
-						} catch (NumberFormatException e) {
-							Scarify.LOGGER.warn("ConfigFile: Value contained a dot, but couldn't be parsed as a double: " + value);
-						}
-					} else if (firstChar >= '0' && firstChar <= '9' || (firstChar == '-' && value.length() > 1 && value.charAt(1) >= '0' && value.charAt(1) <= '9')) {
-						try {
-							currentSectionData.put(key, Integer.parseInt(value));
-						} catch (NumberFormatException e) {
-							Scarify.LOGGER.warn("ConfigFile: Value is numeric, but couldn't be parsed as an integer: " + value);
-						}
-					} else {
-						Scarify.LOGGER.warn("ConfigFile: Value couldn't be parsed: " + value);
-					}
+		final StringBuilder line = new StringBuilder(64);
+		final char[] buffer = new char[8192];
+		int read;
+		while ((read = reader.read(buffer)) != -1) {
+			for (int i = 0; i < read; i++) {
+				final char c = buffer[i];
+				if (c == '\n') {
+					currentSectionData = parseLine(configFile, currentSectionData, line);
+					line.setLength(0);
+				} else if (c != '\r') {
+					line.append(c);
 				}
 			}
 		}
+		parseLine(configFile, currentSectionData, line);
 		return configFile;
 	}
 
+	// Parses one line into the config. Returns the section that following lines belong to.
+	private static HashMap<String, Object> parseLine(ConfigFile configFile, HashMap<String, Object> currentSectionData, StringBuilder line) {
+		final int length = line.length();
+		if (length == 0) {
+			return currentSectionData;
+		}
+		final char lineStart = line.charAt(0);
+		if (lineStart == ';' || lineStart == '#') {
+			// Comment.
+			return currentSectionData;
+		}
+		if (lineStart == '[') {
+			final int end = line.charAt(length - 1) == ']' ? length - 1 : length;
+			return configFile.getSectionData(line.substring(1, end));
+		}
+
+		// Only the first '=' separates the key, so values may contain '=' themselves.
+		final int separator = line.indexOf("=");
+		if (separator < 0 || separator == length - 1) {
+			return currentSectionData;
+		}
+		final String key = line.substring(0, separator);
+		final int valueStart = separator + 1;
+		final char firstChar = line.charAt(valueStart);
+		if (firstChar == '"') {
+			// String value (need to strip quotes).
+			final int end = length - valueStart > 1 && line.charAt(length - 1) == '"' ? length - 1 : length;
+			currentSectionData.put(key, line.substring(valueStart + 1, end));
+		} else if (regionEquals(line, valueStart, "true")) {
+			currentSectionData.put(key, Boolean.TRUE);
+		} else if (regionEquals(line, valueStart, "false")) {
+			currentSectionData.put(key, Boolean.FALSE);
+		} else if (line.indexOf(".", valueStart) >= 0) {
+			final String value = line.substring(valueStart);
+			try {
+				currentSectionData.put(key, Double.parseDouble(value));
+			} catch (NumberFormatException e) {
+				LOGGER.warn("ConfigFile: Value contained a dot, but couldn't be parsed as a double: " + value);
+			}
+		} else if (firstChar >= '0' && firstChar <= '9' || (firstChar == '-' && length - valueStart > 1 && line.charAt(valueStart + 1) >= '0' && line.charAt(valueStart + 1) <= '9')) {
+			try {
+				currentSectionData.put(key, Integer.parseInt(line, valueStart, length, 10));
+			} catch (NumberFormatException e) {
+				LOGGER.warn("ConfigFile: Value is numeric, but couldn't be parsed as an integer: " + line.substring(valueStart));
+			}
+		} else {
+			LOGGER.warn("ConfigFile: Value couldn't be parsed: " + line.substring(valueStart));
+		}
+		return currentSectionData;
+	}
+
+	private static boolean regionEquals(StringBuilder line, int start, String expected) {
+		if (line.length() - start != expected.length()) {
+			return false;
+		}
+		for (int i = 0; i < expected.length(); i++) {
+			if (line.charAt(start + i) != expected.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public static ConfigFile loadFromFile(Path path, boolean warnIfMissing) {
-		try {
-			Files.readAllLines(path);
-			return loadFromLines(Files.readAllLines(path));
-		} catch (java.io.IOException e) {
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			return loadFromReader(reader);
+		} catch (IOException e) {
 			if (warnIfMissing) {
-				Scarify.LOGGER.warn("ConfigFile: Failed to read file: " + path + ". Returning an empty ConfigFile.");
+				LOGGER.warn("ConfigFile: Failed to read file: " + path + ". Returning an empty ConfigFile.");
 			}
 			return new ConfigFile();
 		}
 	}
 
-	@Override public String toString() {
-		StringBuilder builder = new StringBuilder();
-		TreeSet<String> sections = new TreeSet<>(_data.keySet());
+	// Streams the config out section by section, without building the whole file in memory first.
+	public void writeTo(Writer writer) throws IOException {
+		final String[] sections = _data.keySet().toArray(new String[0]);
+		Arrays.sort(sections);
 		for (String section : sections) {
 			if (!section.isEmpty()) {
-				builder.append("\n[").append(section).append("]\n");
+				writer.write("\n[");
+				writer.write(section);
+				writer.write("]\n");
 			}
-			HashMap<String, Object> sectionData = _data.get(section);
-			Set<String> keys = sectionData.keySet();
-			for (String key : keys) {
-				Object value = sectionData.get(key);
+			for (Map.Entry<String, Object> entry : _data.get(section).entrySet()) {
+				writer.write(entry.getKey());
+				final Object value = entry.getValue();
 				if (value instanceof String) {
-					builder.append(key).append("=\"").append(value).append("\"\n");
+					writer.write("=\"");
+					writer.write((String) value);
+					writer.write("\"\n");
 				} else {
-					builder.append(key).append("=").append(value).append("\n");
+					writer.write('=');
+					writer.write(String.valueOf(value));
+					writer.write('\n');
 				}
 			}
 		}
-		return builder.toString();
 	}
 
-	public void saveToFile(Path path) {
+	@Override public String toString() {
+		final StringWriter writer = new StringWriter();
+		try {
+			writeTo(writer);
+		} catch (IOException e) {
+			// StringWriter doesn't throw
+			throw new UncheckedIOException(e);
+		}
+		return writer.toString();
+	}
+
+	// Writes to a temporary file first and moves it into place, so a crash mid-write can't truncate the config.
+	// Returns whether the file was written.
+	public boolean saveToFile(Path path) {
+		final Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
 		try {
-			Files.write(path, toString().getBytes("UTF-8"));
-		} catch (java.io.IOException e) {
-			Scarify.LOGGER.warn("ConfigFile: Failed to write file: " + path);
+			try (BufferedWriter writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+				writeTo(writer);
+			}
+			try {
+				Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			LOGGER.warn("ConfigFile: Failed to write file: " + path);
+			return false;
 		}
+		return true;
+	}
+
+	// Copies every section, so the copy can be read on another thread while this one keeps changing
+	public ConfigFile copy() {
+		final ConfigFile configFile = new ConfigFile();
+		for (var section : _data.entrySet()) {
+			configFile._data.put(section.getKey(), new HashMap<>(section.getValue()));
+		}
+		return configFile;
 	}
 
 	public ConfigFile() {
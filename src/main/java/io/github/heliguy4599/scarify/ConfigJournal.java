@@ -0,0 +1,104 @@
+package io.github.heliguy4599.scarify;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Append-only log of config mutations, kept next to the config file.
+// The config on disk is the base file with the journal replayed on top of it.
+public class ConfigJournal {
+	private final Path path;
+
+	public ConfigJournal(Path _path) {
+		path = _path;
+	}
+
+	public static Path pathFor(Path configPath) {
+		return configPath.resolveSibling(configPath.getFileName() + ".journal");
+	}
+
+	// Applies every complete record to the config and returns how many were applied.
+	// A trailing record without its newline was cut off by a crash, so it's dropped from the file if repair is set.
+	// Only repair at startup, since anywhere else it could be a record that's still being written.
+	public int replay(ConfigFile configFile, boolean repair) {
+		if (!Files.exists(path)) {
+			return 0;
+		}
+		final byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(path);
+		} catch (IOException e) {
+			Scarify.LOGGER.warn("ConfigJournal: Failed to read journal: " + path);
+			return 0;
+		}
+
+		int applied = 0;
+		int lineStart = 0;
+		for (int i = 0; i < bytes.length; i++) {
+			if (bytes[i] != '\n') {
+				continue;
+			}
+			final String line = new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8);
+			lineStart = i + 1;
+			final ConfigMutation mutation = ConfigMutation.fromJournalLine(line);
+			if (mutation == null) {
+				Scarify.LOGGER.warn("ConfigJournal: Skipping unreadable record: " + line);
+				continue;
+			}
+			mutation.applyTo(configFile);
+			applied++;
+		}
+
+		if (repair && lineStart < bytes.length) {
+			Scarify.LOGGER.warn("ConfigJournal: Dropping partial record at the end of " + path);
+			try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+				channel.truncate(lineStart);
+			} catch (IOException e) {
+				Scarify.LOGGER.warn("ConfigJournal: Failed to truncate journal: " + path);
+			}
+		}
+		return applied;
+	}
+
+	public void append(List<ConfigMutation> mutations) {
+		if (mutations.isEmpty()) {
+			return;
+		}
+		final StringBuilder builder = new StringBuilder();
+		for (ConfigMutation mutation : mutations) {
+			builder.append(mutation.toJournalLine()).append('\n');
+		}
+		try {
+			Files.write(
+				path,
+				builder.toString().getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND
+			);
+		} catch (IOException e) {
+			Scarify.LOGGER.warn("ConfigJournal: Failed to append to journal: " + path);
+		}
+	}
+
+	public long size() {
+		try {
+			return Files.exists(path) ? Files.size(path) : 0;
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	// Empties the journal. Only call once its records are in the base file.
+	public void clear() {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			Scarify.LOGGER.warn("ConfigJournal: Failed to clear journal: " + path);
+		}
+	}
+}
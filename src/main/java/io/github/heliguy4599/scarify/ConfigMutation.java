@@ -0,0 +1,158 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.HashMap;
+
+import org.jetbrains.annotations.Nullable;
+
+// A single change to the roster in the config, as made by a command.
+// Every mutation sets state rather than toggling it, so replaying one twice gives the same config.
+public class ConfigMutation {
+	public enum Type {
+		ADD("add"),
+		REMOVE("remove"),
+		SET_DISTANCE_OVERRIDE("setDistanceOverride"),
+		RESET_DISTANCE_OVERRIDE("resetDistanceOverride");
+
+		public final String id;
+
+		Type(String id) {
+			this.id = id;
+		}
+	}
+
+	// Marks a section for a player removed from the binary roster file, until the file is written again
+	public static final String REMOVED_KEY = "removed";
+	public static final String DISTANCE_OVERRIDE_KEY = "distanceOverride";
+
+	public final Type type;
+	public final String playerName;
+	// Only used by SET_DISTANCE_OVERRIDE
+	public final double distance;
+	// The dimension a distance override is for, like minecraft:the_nether, or null for every dimension
+	@Nullable
+	public final String dimension;
+
+	private ConfigMutation(Type type, String playerName, double distance, @Nullable String dimension) {
+		this.type = type;
+		this.playerName = playerName;
+		this.distance = distance;
+		this.dimension = dimension;
+	}
+
+	public static ConfigMutation add(String playerName) {
+		return new ConfigMutation(Type.ADD, playerName, Double.NaN, null);
+	}
+
+	public static ConfigMutation remove(String playerName) {
+		return new ConfigMutation(Type.REMOVE, playerName, Double.NaN, null);
+	}
+
+	public static ConfigMutation setDistanceOverride(String playerName, double distance) {
+		return setDistanceOverride(playerName, distance, null);
+	}
+
+	public static ConfigMutation setDistanceOverride(String playerName, double distance, @Nullable String dimension) {
+		return new ConfigMutation(Type.SET_DISTANCE_OVERRIDE, playerName, distance, dimension);
+	}
+
+	public static ConfigMutation resetDistanceOverride(String playerName) {
+		return resetDistanceOverride(playerName, null);
+	}
+
+	public static ConfigMutation resetDistanceOverride(String playerName, @Nullable String dimension) {
+		return new ConfigMutation(Type.RESET_DISTANCE_OVERRIDE, playerName, Double.NaN, dimension);
+	}
+
+	// Overrides for one dimension are stored next to the global one, as distanceOverride.<dimension>
+	public static String distanceOverrideKey(@Nullable String dimension) {
+		return dimension == null ? DISTANCE_OVERRIDE_KEY : DISTANCE_OVERRIDE_KEY + "." + dimension;
+	}
+
+	public void applyTo(ConfigFile configFile) {
+		switch (type) {
+			case ADD -> {
+				if (configFile.findSectionData(playerName) == null) {
+					configFile.setSectionData(playerName, new HashMap<>());
+				}
+			}
+			case REMOVE -> configFile.deleteSection(playerName);
+			case SET_DISTANCE_OVERRIDE -> {
+				// Overrides for other dimensions stay as they are
+				HashMap<String, Object> data = configFile.findSectionData(playerName);
+				if (data == null) {
+					data = new HashMap<>();
+					configFile.setSectionData(playerName, data);
+				}
+				data.put(distanceOverrideKey(dimension), distance);
+			}
+			case RESET_DISTANCE_OVERRIDE -> {
+				HashMap<String, Object> data = configFile.findSectionData(playerName);
+				if (data != null) {
+					data.remove(distanceOverrideKey(dimension));
+				}
+			}
+		}
+	}
+
+	// With a binary roster file, the config only holds what changed since the file was written.
+	// Players only in the file are copied into the config before they change, and removing them marks their section instead.
+	public void applyTo(ConfigFile configFile, @Nullable MappedRoster base) {
+		final int baseIndex = base == null ? -1 : base.find(playerName);
+		if (baseIndex < 0) {
+			applyTo(configFile);
+			return;
+		}
+		final var data = configFile.findSectionData(playerName);
+		if (data == null) {
+			configFile.setSectionData(playerName, base.toSectionData(baseIndex));
+		} else if (Boolean.TRUE.equals(data.get(REMOVED_KEY))) {
+			if (type == Type.RESET_DISTANCE_OVERRIDE) {
+				// Still removed
+				return;
+			}
+			configFile.setSectionData(playerName, new HashMap<>());
+		}
+		if (type == Type.REMOVE) {
+			final HashMap<String, Object> removed = new HashMap<>();
+			removed.put(REMOVED_KEY, true);
+			configFile.setSectionData(playerName, removed);
+			return;
+		}
+		applyTo(configFile);
+	}
+
+	// Journal records are one line each: the type, the player name and, for overrides, the distance
+	// and then the dimension if there is one, separated by tabs
+	public String toJournalLine() {
+		final String line = type == Type.SET_DISTANCE_OVERRIDE ? type.id + "\t" + playerName + "\t" + distance : type.id + "\t" + playerName;
+		return dimension == null ? line : line + "\t" + dimension;
+	}
+
+	@Nullable
+	public static ConfigMutation fromJournalLine(String line) {
+		final String[] parts = line.split("\t");
+		if (parts.length < 2 || parts[1].isEmpty()) {
+			return null;
+		}
+		for (Type type : Type.values()) {
+			if (!type.id.equals(parts[0])) {
+				continue;
+			}
+			if (type == Type.RESET_DISTANCE_OVERRIDE) {
+				return new ConfigMutation(type, parts[1], Double.NaN, parts.length > 2 ? parts[2] : null);
+			}
+			if (type != Type.SET_DISTANCE_OVERRIDE) {
+				return new ConfigMutation(type, parts[1], Double.NaN, null);
+			}
+			if (parts.length < 3) {
+				return null;
+			}
+			try {
+				return new ConfigMutation(type, parts[1], Double.parseDouble(parts[2]), parts.length > 3 ? parts[3] : null);
+			} catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		return null;
+	}
+}
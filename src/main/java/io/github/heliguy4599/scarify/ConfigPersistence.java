@@ -0,0 +1,244 @@
+package io.github.heliguy4599.scarify;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import net.minecraft.server.MinecraftServer;
+import org.jetbrains.annotations.Nullable;
+
+// Write-behind saving for the config file.
+// Saves are delayed a little so a burst of commands turns into one write, and the file is written off the server thread.
+// In journal mode each change is appended to the journal instead, and the whole file is only rewritten to compact it.
+public class ConfigPersistence {
+	private static final long COALESCE_MILLIS = 500;
+	private static final long SNAPSHOT_TIMEOUT_SECONDS = 10;
+	private static final long FLUSH_TIMEOUT_SECONDS = 30;
+	// Rewrite the base file once the journal grows past this
+	private static final long JOURNAL_COMPACT_BYTES = 1024 * 1024;
+
+	private final ConfigFile configFile;
+	private final Path path;
+	@Nullable
+	private final ConfigJournal journal;
+	private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		final var thread = new Thread(runnable, "Scarify Config Writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	// Guarded by this
+	@Nullable
+	private ScheduledFuture<?> scheduledSave = null;
+	// The copy the writer is waiting for the server thread to make, guarded by this.
+	// Cleared once it's made or given up on, so a late copy request on the server thread does nothing.
+	@Nullable
+	private CompletableFuture<ConfigFile> snapshotRequest = null;
+	private final List<ConfigMutation> pendingMutations = new ArrayList<>();
+	private boolean appendScheduled = false;
+	private int writesInProgress = 0;
+
+	public ConfigPersistence(ConfigFile _configFile, Path _path, @Nullable ConfigJournal _journal) {
+		configFile = _configFile;
+		path = _path;
+		journal = _journal;
+	}
+
+	// Call on the server thread after applying a mutation to the config
+	public void recordChange(MinecraftServer server, ConfigMutation mutation) {
+		recordChanges(server, List.of(mutation));
+	}
+
+	// Call on the server thread after applying a batch of mutations to the config. The batch is written at once.
+	public synchronized void recordChanges(MinecraftServer server, List<ConfigMutation> mutations) {
+		if (mutations.isEmpty()) {
+			return;
+		}
+		if (journal == null) {
+			requestSave(server);
+			return;
+		}
+		pendingMutations.addAll(mutations);
+		if (!appendScheduled) {
+			appendScheduled = true;
+			writer.execute(() -> appendFromWriter(server));
+		}
+	}
+
+	// Call on the server thread after changing the config
+	public synchronized void requestSave(MinecraftServer server) {
+		if (scheduledSave == null) {
+			scheduledSave = writer.schedule(() -> saveFromWriter(server), COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	// The thread config files are written on, for other writes that should stay off the server thread
+	public Executor getWriter() {
+		return writer;
+	}
+
+	@Nullable
+	public ConfigJournal getJournal() {
+		return journal;
+	}
+
+	// Whether there are changes that haven't reached the disk yet
+	public synchronized boolean hasPendingChanges() {
+		return scheduledSave != null || !pendingMutations.isEmpty() || writesInProgress > 0;
+	}
+
+	// Compacts a journal replayed at startup, before there's a server to snapshot on
+	public void compactOnStartup() {
+		if (journal == null || journal.size() <= JOURNAL_COMPACT_BYTES) {
+			return;
+		}
+		final ConfigFile snapshot = configFile.copy();
+		beginWrite();
+		writer.execute(() -> writeBase(snapshot));
+	}
+
+	// Writes any pending changes right away and waits for them. Call on the server thread, e.g. when the server stops.
+	public void flush() {
+		synchronized (this) {
+			// A save waiting on us for its copy would hold up the writer until it times out, we take the copy ourselves instead
+			if (snapshotRequest != null) {
+				snapshotRequest.cancel(false);
+				snapshotRequest = null;
+			}
+		}
+		final List<ConfigMutation> mutations = takePendingMutations();
+		final ConfigFile snapshot = takeSnapshot();
+		try {
+			writer.submit(() -> {
+				if (journal != null) {
+					journal.append(mutations);
+				}
+				if (snapshot != null) {
+					writeBase(snapshot);
+				}
+			}).get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException | ExecutionException | TimeoutException e) {
+			Scarify.LOGGER.warn("ConfigPersistence: Failed to flush pending changes: " + e);
+		}
+	}
+
+	private void appendFromWriter(MinecraftServer server) {
+		beginWrite();
+		final List<ConfigMutation> mutations = takePendingMutations();
+		try {
+			journal.append(mutations);
+		} finally {
+			endWrite();
+		}
+		if (journal.size() > JOURNAL_COMPACT_BYTES) {
+			requestSave(server);
+		}
+	}
+
+	private void saveFromWriter(MinecraftServer server) {
+		final CompletableFuture<ConfigFile> request = new CompletableFuture<>();
+		synchronized (this) {
+			snapshotRequest = request;
+		}
+		// The config is only changed on the server thread, so copy it there
+		server.execute(() -> completeSnapshot(request));
+
+		ConfigFile snapshot;
+		try {
+			snapshot = request.get(SNAPSHOT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (CancellationException e) {
+			// flush() took over
+			return;
+		} catch (TimeoutException e) {
+			if (abandonSnapshot(request, server)) {
+				Scarify.LOGGER.warn("ConfigPersistence: The server didn't snapshot the config for saving in time, trying again later");
+				return;
+			}
+			// Made or cancelled while we were giving up on it
+			snapshot = request.isCancelled() || request.isCompletedExceptionally() ? null : request.join();
+		} catch (InterruptedException | ExecutionException e) {
+			abandonSnapshot(request, server);
+			Scarify.LOGGER.warn("ConfigPersistence: Couldn't snapshot the config for saving: " + e);
+			return;
+		}
+		if (snapshot != null) {
+			writeBase(snapshot);
+		}
+	}
+
+	// Runs on the server thread
+	private synchronized void completeSnapshot(CompletableFuture<ConfigFile> request) {
+		if (snapshotRequest != request) {
+			// Given up on by the writer or flush()
+			return;
+		}
+		snapshotRequest = null;
+		try {
+			request.complete(takeSnapshot());
+		} catch (RuntimeException e) {
+			request.completeExceptionally(e);
+		}
+	}
+
+	// Returns false if the copy was already made or cancelled. Otherwise the save is put off and tried again.
+	private synchronized boolean abandonSnapshot(CompletableFuture<ConfigFile> request, MinecraftServer server) {
+		if (snapshotRequest != request) {
+			return false;
+		}
+		snapshotRequest = null;
+		if (scheduledSave != null) {
+			// Still the save that's running now, replace it so hasPendingChanges() and requestSave() see a live one
+			scheduledSave = writer.schedule(() -> saveFromWriter(server), COALESCE_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		return true;
+	}
+
+	// Only runs on the writer thread. Mutations appended after the snapshot was taken are still queued,
+	// and replaying them over the new base is harmless, so the journal can be cleared as soon as the base is safe.
+	// The caller must have counted this write with beginWrite, which takeSnapshot does for it.
+	private void writeBase(ConfigFile snapshot) {
+		try {
+			if (snapshot.saveToFile(path) && journal != null) {
+				journal.clear();
+			}
+		} finally {
+			endWrite();
+		}
+	}
+
+	private synchronized void beginWrite() {
+		writesInProgress++;
+	}
+
+	private synchronized void endWrite() {
+		writesInProgress--;
+	}
+
+	private synchronized List<ConfigMutation> takePendingMutations() {
+		final var mutations = new ArrayList<>(pendingMutations);
+		pendingMutations.clear();
+		appendScheduled = false;
+		return mutations;
+	}
+
+	// Returns a copy of the config if a save is pending, or null if it has already been taken.
+	// A returned copy counts as a write in progress until it's passed to writeBase.
+	@Nullable
+	private synchronized ConfigFile takeSnapshot() {
+		if (scheduledSave == null) {
+			return null;
+		}
+		scheduledSave.cancel(false);
+		scheduledSave = null;
+		writesInProgress++;
+		return configFile.copy();
+	}
+}
@@ -0,0 +1,141 @@
+package io.github.heliguy4599.scarify;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import net.minecraft.server.MinecraftServer;
+import org.jetbrains.annotations.Nullable;
+
+// Reloads the config when something outside the game changes the file.
+// Events are debounced, the file is parsed on the watcher thread, and only the sections that differ are applied on the server thread.
+public class ConfigWatcher {
+	private static final long DEBOUNCE_MILLIS = 500;
+
+	private final MinecraftServer server;
+	private final Path configPath;
+	private final WatchService watchService;
+	private final Thread thread;
+
+	private ConfigWatcher(MinecraftServer _server, Path _configPath, WatchService _watchService) {
+		server = _server;
+		configPath = _configPath;
+		watchService = _watchService;
+		thread = new Thread(this::run, "Scarify Config Watcher");
+		thread.setDaemon(true);
+	}
+
+	// Returns null if the config directory can't be watched
+	@Nullable
+	public static ConfigWatcher start(MinecraftServer server, Path configPath) {
+		try {
+			final WatchService watchService = FileSystems.getDefault().newWatchService();
+			configPath.getParent().register(
+				watchService,
+				StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY
+			);
+			final var watcher = new ConfigWatcher(server, configPath, watchService);
+			watcher.thread.start();
+			return watcher;
+		} catch (IOException e) {
+			Scarify.LOGGER.warn("ConfigWatcher: Can't watch " + configPath + " for changes: " + e);
+			return null;
+		}
+	}
+
+	public void stop() {
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			Scarify.LOGGER.warn("ConfigWatcher: Failed to close watch service: " + e);
+		}
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				boolean changed = drainEvents(watchService.take());
+				// Wait for the file to stay quiet, so an editor's save turns into one reload
+				while (changed) {
+					final WatchKey key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+					if (key == null) {
+						break;
+					}
+					drainEvents(key);
+				}
+				if (changed) {
+					reload();
+				}
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// Stopped
+		}
+	}
+
+	private boolean drainEvents(WatchKey key) {
+		boolean touchesConfig = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.context() instanceof Path changedPath && changedPath.equals(configPath.getFileName())) {
+				touchesConfig = true;
+			}
+		}
+		key.reset();
+		return touchesConfig;
+	}
+
+	private void reload() {
+		if (Scarify.configPersistence.hasPendingChanges()) {
+			// Our own save is on its way and will overwrite whatever is there now
+			return;
+		}
+		final ConfigFile loaded = ConfigFile.loadFromFile(configPath, true);
+		final var journal = Scarify.configPersistence.getJournal();
+		if (journal != null) {
+			journal.replay(loaded, false);
+		}
+		server.execute(() -> applyDiff(loaded));
+	}
+
+	// Runs on the server thread. Copies over every player section that differs and removes the ones that are gone.
+	private void applyDiff(ConfigFile loaded) {
+		if (Scarify.configPersistence.hasPendingChanges()) {
+			// A command changed the config after the file was read, so the file is already stale
+			return;
+		}
+		final ConfigFile live = Scarify.configFile;
+		final List<String> changedNames = new ArrayList<>();
+		for (String section : loaded.getSectionNames()) {
+			if (section.isEmpty()) {
+				continue;
+			}
+			final var loadedData = loaded.findSectionData(section);
+			if (!Objects.equals(loadedData, live.findSectionData(section))) {
+				live.setSectionData(section, new HashMap<>(loadedData));
+				changedNames.add(section);
+			}
+		}
+		for (String section : new HashSet<>(live.getSectionNames())) {
+			if (!section.isEmpty() && loaded.findSectionData(section) == null) {
+				live.deleteSection(section);
+				changedNames.add(section);
+			}
+		}
+
+		if (!changedNames.isEmpty()) {
+			Scarify.LOGGER.info("Reloaded " + changedNames.size() + " changed players from " + configPath.getFileName());
+			Scarify.refreshRoster(server, changedNames);
+		}
+	}
+}
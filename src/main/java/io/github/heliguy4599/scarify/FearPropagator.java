@@ -0,0 +1,63 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.function.Consumer;
+
+// Push mode for flee decisions, turned on with the scarifyPushPropagation gamerule.
+// Instead of every mob looking for threats, every few ticks each scary player marks the mobs within its reach,
+// and only marked mobs evaluate. Mobs with nobody nearby skip the evaluation, so the cost follows
+// scary players times the mobs around them rather than every mob times every player.
+public class FearPropagator {
+	// Matches the scheduler, so every marked mob gets one evaluation slot before its mark runs out
+	public static final int PROPAGATION_INTERVAL = FleeScheduler.EVALUATION_INTERVAL;
+	// The follow range of most mobs, until a mob with a longer one shows up
+	private static final double INITIAL_FOLLOW_RANGE = 16.0;
+
+	private boolean enabled = false;
+	private long tick = 0;
+	private long markedUntil = 0;
+	private double maxFollowRange = INITIAL_FOLLOW_RANGE;
+	private int lastMarked = 0;
+	private final Consumer<FleeDecision> mark = decision -> {
+		decision.markThreatened(this.markedUntil);
+		this.lastMarked++;
+	};
+
+	// Called once the snapshot holds this tick's threats
+	public void onStartTick(FleeWorld world, ScaryPlayerSnapshot snapshot) {
+		enabled = world.isPushPropagation();
+		// Same clock as the scheduler's slots, so each mark covers exactly one of them
+		tick = world.getServerTicks();
+		if (!enabled || Math.floorMod(tick, PROPAGATION_INTERVAL) != 0) {
+			return;
+		}
+
+		lastMarked = 0;
+		markedUntil = tick + PROPAGATION_INTERVAL;
+		final ThreatIndex index = snapshot.getIndex();
+		for (int i = 0; i < index.size(); i++) {
+			// Far enough for the mob with the longest follow range. Each marked mob still checks its own range when it evaluates.
+			final double reach = Math.sqrt(index.getRadiusSq(i, maxFollowRange));
+			world.forEachFleeMobNear(index.getX(i), index.getY(i), index.getZ(i), reach, mark);
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public boolean isThreatened(long threatenedUntil) {
+		return tick < threatenedUntil;
+	}
+
+	// Called by each flee decision the first time it runs in this world, so every mob's follow range is covered
+	public void noteFollowRange(double followRange) {
+		if (followRange > maxFollowRange) {
+			maxFollowRange = followRange;
+		}
+	}
+
+	// Marks handed out by the last propagation, counting a mob once per player that reached it
+	public int getLastMarked() {
+		return lastMarked;
+	}
+}
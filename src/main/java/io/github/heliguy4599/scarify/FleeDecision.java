@@ -0,0 +1,392 @@
+package io.github.heliguy4599.scarify;
+
+import net.minecraft.entity.ai.pathing.Path;
+import net.minecraft.entity.ai.pathing.PathNode;
+import net.minecraft.util.math.Vec3d;
+import org.jetbrains.annotations.Nullable;
+
+// One mob's side of fleeing: when to evaluate, which threat to run from, and which path to run along.
+// Follows the Goal lifecycle, so FleeFromPlayerGoal drives it on a server and the simulator drives it headless.
+public class FleeDecision {
+	// While fleeing, the path is checked against the threat every this many goal ticks
+	private static final int TRACKING_INTERVAL = 5;
+	// The path is cut off once a node still ahead is this many blocks closer to the threat than the mob is now
+	private static final double CUT_OFF_MARGIN = 1.0;
+	// With this few nodes left and the threat still in range, the path is extended instead of running out
+	private static final int EXTEND_NODES = 3;
+	// How far straight away from the threat a repaired path heads
+	private static final double REPAIR_DISTANCE = 8.0;
+
+	private final FleeMob mob;
+	@Nullable
+	private FleeThreat target;
+	@Nullable
+	private Path fleePath;
+	// The engine of the world the mob was last evaluated in
+	@Nullable
+	private FleeEngine engine;
+	private final ThreatIndex.Visibility visibility;
+	// The last canStart() decision, kept while the mob is waiting for its next evaluation slot
+	private boolean lastDecision = false;
+	private boolean missedSlot = false;
+	// The flee path search this mob is waiting on, and its result once it's done
+	@Nullable
+	private FleePathQueue.Request pendingPathRequest;
+	@Nullable
+	private Path readyPath;
+	// Set when a line-of-sight check was put off by the raycast budget during this evaluation
+	private boolean visibilityDeferred = false;
+	// In push mode, the tick until which a scary player's propagation has this mob marked
+	private long threatenedUntil = Long.MIN_VALUE;
+	// Goal ticks since the path was last checked against the threat
+	private int ticksSinceTracked = 0;
+	// Set while the pending search is a repair of the path being walked, and once one came back empty
+	private boolean repairing = false;
+	private boolean repairFailed = false;
+	// Kept by the world's ThreatSelector in parallel selection mode: which one is tracking us, when we last asked
+	// to start, and where our position sits in its batch
+	@Nullable
+	ThreatSelector selectionTracker;
+	long selectionAskedTick;
+	int selectionSlot = -1;
+
+	public FleeDecision(FleeMob mob) {
+		this.mob = mob;
+		this.visibility = index -> this.engine.visibilityCache.canSee(this.mob, this.engine.scaryPlayers.getThreat(index));
+	}
+
+	public boolean canStart(FleeEngine engine) {
+		if (this.engine != engine) {
+			// New to this world, make sure its push propagation reaches as far as this mob can be scared from
+			engine.fearPropagator.noteFollowRange(this.mob.getFollowRange());
+			this.engine = engine;
+		}
+		if (!engine.isArmed()) {
+			// Nobody here can scare us, forget anything left over from when someone could
+			this.lastDecision = false;
+			this.pendingPathRequest = null;
+			this.repairing = false;
+			this.readyPath = null;
+			return false;
+		}
+
+		if (this.readyPath != null) {
+			// Our queued search finished, flee if the threat is still around
+			this.fleePath = this.readyPath;
+			this.readyPath = null;
+			if (this.target == null || !this.target.isAlive()) {
+				return false;
+			}
+			// The evaluation that queued the search counted as waiting_for_path, this is where it ends up fleeing
+			ScarifyStats.recordOutcome(ScarifyStats.Outcome.FLEE);
+			return true;
+		}
+		if (this.pendingPathRequest != null) {
+			return false;
+		}
+		if (engine.fearPropagator.isEnabled() && !engine.fearPropagator.isThreatened(this.threatenedUntil)) {
+			// No scary player marked us, so there's nothing to evaluate
+			this.lastDecision = false;
+			return false;
+		}
+		if (engine.threatSelector.isEnabled()) {
+			engine.threatSelector.track(this);
+		}
+
+		// Only run the full evaluation in this mob's slot, and only while the world has budget left.
+		// Otherwise keep whatever was decided last time.
+		final var scheduler = engine.fleeScheduler;
+		if (!scheduler.isDue(this.mob.getId(), this.missedSlot)) {
+			return this.lastDecision;
+		}
+		if (!scheduler.hasBudget()) {
+			this.missedSlot = true;
+			return this.lastDecision;
+		}
+		this.missedSlot = false;
+
+		final long startTime = System.nanoTime();
+		this.visibilityDeferred = false;
+		var outcome = ScarifyStats.Outcome.NO_PLAYER;
+		try {
+			outcome = evaluate();
+			this.lastDecision = outcome == ScarifyStats.Outcome.FLEE;
+		} finally {
+			final long elapsed = System.nanoTime() - startTime;
+			scheduler.recordEvaluation(elapsed);
+			ScarifyStats.recordEvaluation(this.mob, outcome, elapsed);
+		}
+		if (this.visibilityDeferred && !this.lastDecision) {
+			// Couldn't see everything we needed to, so look again next tick instead of waiting for our slot
+			this.missedSlot = true;
+		}
+		return this.lastDecision;
+	}
+
+	private ScarifyStats.Outcome evaluate() {
+		if (this.mob.isTamed()) {
+			// Don't make tamed mobs scared
+			return ScarifyStats.Outcome.TAMED;
+		}
+		this.target = findClosestThreat();
+		if (this.target == null) {
+			return ScarifyStats.Outcome.NO_PLAYER;
+		}
+		final double threatDistanceSq = this.mob.squaredDistanceTo(this.target);
+		if (this.engine.flowFields.isEnabled()) {
+			// The field already knows the way out, no search needed
+			final var field = this.engine.flowFields.get(this.target);
+			final Path path = field == null ? null : field.findFleePath(this.mob.getX(), this.mob.getY(), this.mob.getZ());
+			if (path != null) {
+				this.fleePath = path;
+				return ScarifyStats.Outcome.FLEE;
+			}
+		}
+		// Let a nearby leader's flee search speak for the whole herd when there is one
+		final var plan = this.engine.herdCoordinator.findPlan(this.mob, this.target);
+		if (plan != null) {
+			if (HerdCoordinator.canReusePath(plan, this.mob)) {
+				this.fleePath = HerdCoordinator.copyPath(plan.path);
+				return ScarifyStats.Outcome.FLEE;
+			}
+			final Vec3d destination = HerdCoordinator.followerDestination(plan, this.mob);
+			if (this.target.squaredDistanceTo(destination.x, destination.y, destination.z) >= threatDistanceSq) {
+				requestPath(destination, 1, false);
+				return ScarifyStats.Outcome.WAITING_FOR_PATH;
+			}
+		}
+
+		final Vec3d fleeTarget = this.mob.getNavigation().findFleeTarget(this.target);
+		if (fleeTarget == null) {
+			return ScarifyStats.Outcome.NO_FLEE_TARGET;
+		}
+		if (this.target.squaredDistanceTo(fleeTarget.x, fleeTarget.y, fleeTarget.z) < threatDistanceSq) {
+			return ScarifyStats.Outcome.NO_FLEE_TARGET;
+		}
+		requestPath(fleeTarget, 0, true);
+		return ScarifyStats.Outcome.WAITING_FOR_PATH;
+	}
+
+	// Path searches go through the world's queue, canStart() picks the path up once it's ready
+	private void requestPath(Vec3d destination, int reachDistance, boolean leadsHerd) {
+		this.pendingPathRequest = this.engine.fleePathQueue.enqueue(
+			this,
+			this.target,
+			destination,
+			reachDistance,
+			leadsHerd,
+			this.mob.squaredDistanceTo(this.target)
+		);
+	}
+
+	// Whether canStart() would evaluate this tick, as far as can be told before the mob ticks.
+	// Used by the world's ThreatSelector to pick the mobs to work out threats for ahead of time.
+	boolean needsThreatSelection(FleeEngine engine) {
+		if (this.engine != engine || this.readyPath != null || this.pendingPathRequest != null || this.mob.isTamed()) {
+			return false;
+		}
+		if (engine.fearPropagator.isEnabled() && !engine.fearPropagator.isThreatened(this.threatenedUntil)) {
+			return false;
+		}
+		return engine.fleeScheduler.isDue(this.mob.getId(), this.missedSlot);
+	}
+
+	FleeMob getMob() {
+		return this.mob;
+	}
+
+	// Called by the world's FearPropagator when a scary player is within reach
+	void markThreatened(long until) {
+		this.threatenedUntil = until;
+	}
+
+	boolean isWaitingFor(FleePathQueue.Request request) {
+		return this.pendingPathRequest == request && this.mob.isAlive();
+	}
+
+	@Nullable
+	Path searchPath(FleePathQueue.Request request) {
+		return this.mob.getNavigation().findPathTo(request.destination, request.reachDistance);
+	}
+
+	void onPathSearched(FleePathQueue.Request request, @Nullable Path path) {
+		if (this.pendingPathRequest != request) {
+			return;
+		}
+		this.pendingPathRequest = null;
+		final boolean repair = this.repairing;
+		this.repairing = false;
+		if (path == null) {
+			ScarifyStats.recordOutcome(ScarifyStats.Outcome.NO_PATH);
+			// Give up on the old path, so the next evaluation does a full search
+			this.repairFailed = repair;
+			return;
+		}
+		this.readyPath = path;
+		this.target = request.player;
+		if (request.leadsHerd) {
+			this.engine.herdCoordinator.addPlan(this.mob, request.player, request.destination, path);
+		}
+	}
+
+	@Nullable
+	private FleeThreat findClosestThreat() {
+		final var snapshot = this.engine.scaryPlayers;
+		if (snapshot.isEmpty()) {
+			return null;
+		}
+		final ThreatIndex index = snapshot.getIndex();
+		final double x = this.mob.getX();
+		final double y = this.mob.getY();
+		final double z = this.mob.getZ();
+		final double followRange = this.mob.getFollowRange();
+		final int selected = this.engine.threatSelector.isEnabled()
+			? this.engine.threatSelector.getNearestInRange(this)
+			: ThreatSelector.UNKNOWN;
+		final int closest;
+		if (selected == ThreatSelector.UNKNOWN) {
+			ScarifyStats.recordPlayerScan();
+			closest = index.findNearest(x, y, z, followRange, this.visibility);
+		} else {
+			// A worker already found the nearest one in range, only visibility is left to check
+			closest = index.findNearestFrom(x, y, z, followRange, selected, this.visibility);
+		}
+		if (closest == ThreatIndex.DEFERRED) {
+			// Couldn't check the nearest player we might see this tick
+			this.visibilityDeferred = true;
+			return null;
+		}
+		return closest < 0 ? null : snapshot.getThreat(closest);
+	}
+
+	@Nullable
+	public FleeThreat getTarget() {
+		return this.target;
+	}
+
+	public boolean shouldContinue() {
+		if (this.repairFailed) {
+			return false;
+		}
+		// Stood still while a repair of a cut off path is searched for, or with one that came back for tick() to pick up
+		return !this.mob.getNavigation().isIdle()
+			|| this.readyPath != null
+			|| (this.repairing && this.pendingPathRequest != null);
+	}
+
+	public void start() {
+		// The decision is used up once we start fleeing
+		this.lastDecision = false;
+		this.repairFailed = false;
+		this.ticksSinceTracked = 0;
+		this.mob.getNavigation().startMovingAlong(this.fleePath, this.mob.getFleeSpeed());
+	}
+
+	// Keeps the path being walked pointed away from the threat. A path the threat has cut off, or one about to run out
+	// while the threat is still close, is repaired from where the mob is instead of left to end in a full search.
+	public void tick() {
+		if (this.readyPath != null) {
+			// A repair came back while we're still on the old path
+			this.fleePath = this.readyPath;
+			this.readyPath = null;
+			this.mob.getNavigation().startMovingAlong(this.fleePath, this.mob.getFleeSpeed());
+			return;
+		}
+		if (this.engine == null || !this.engine.isArmed()) {
+			if (this.repairing) {
+				// Nothing will search for the repair now, so let the goal end
+				this.pendingPathRequest = null;
+				this.repairing = false;
+			}
+			return;
+		}
+		if (this.pendingPathRequest != null) {
+			return;
+		}
+		if (++this.ticksSinceTracked < TRACKING_INTERVAL) {
+			return;
+		}
+		this.ticksSinceTracked = 0;
+
+		final Path path = this.mob.getNavigation().getCurrentPath();
+		if (path == null || path.isFinished()) {
+			return;
+		}
+		// Whoever is closest now, seen or not, since we're already running from them
+		final var snapshot = this.engine.scaryPlayers;
+		final int nearest = snapshot.getIndex().findNearestInRange(
+			this.mob.getX(),
+			this.mob.getY(),
+			this.mob.getZ(),
+			this.mob.getFollowRange()
+		);
+		if (nearest < 0) {
+			// Out of range, the path can run out on its own
+			return;
+		}
+		final FleeThreat threat = snapshot.getThreat(nearest);
+		final boolean cutOff = isCutOff(path, threat);
+		if (path.getLength() - path.getCurrentNodeIndex() > EXTEND_NODES && !cutOff) {
+			return;
+		}
+		repairPath(threat, cutOff);
+	}
+
+	// Whether a node still ahead on the path leads back towards the threat
+	private boolean isCutOff(Path path, FleeThreat threat) {
+		final double limit = Math.sqrt(this.mob.squaredDistanceTo(threat)) - CUT_OFF_MARGIN;
+		if (limit <= 0.0) {
+			return true;
+		}
+		final double limitSq = limit * limit;
+		for (int i = path.getCurrentNodeIndex(); i < path.getLength(); i++) {
+			final PathNode node = path.getNode(i);
+			if (threat.squaredDistanceTo(node.x + 0.5, node.y, node.z + 0.5) < limitSq) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void repairPath(FleeThreat threat, boolean cutOff) {
+		ScarifyStats.recordPathRepair();
+		this.target = threat;
+		if (this.engine.flowFields.isEnabled()) {
+			final var field = this.engine.flowFields.get(threat);
+			final Path path = field == null ? null : field.findFleePath(this.mob.getX(), this.mob.getY(), this.mob.getZ());
+			if (path != null) {
+				this.fleePath = path;
+				this.mob.getNavigation().startMovingAlong(path, this.mob.getFleeSpeed());
+				return;
+			}
+		}
+
+		// A short search straight away from the threat, in place of a new random flee target
+		final double dx = this.mob.getX() - threat.getX();
+		final double dz = this.mob.getZ() - threat.getZ();
+		final double distance = Math.sqrt(dx * dx + dz * dz);
+		if (distance < 1.0E-3) {
+			// No way to tell which way is away
+			this.repairFailed = true;
+			return;
+		}
+		final Vec3d destination = new Vec3d(
+			this.mob.getX() + dx / distance * REPAIR_DISTANCE,
+			this.mob.getY(),
+			this.mob.getZ() + dz / distance * REPAIR_DISTANCE
+		);
+		this.repairing = true;
+		requestPath(destination, 1, false);
+		if (cutOff) {
+			// Walking on would take the mob towards the threat while the repair waits its turn
+			this.mob.getNavigation().stop();
+		}
+	}
+
+	public void stop() {
+		if (this.readyPath == null) {
+			// Otherwise canStart() still needs it to take up the path
+			this.target = null;
+		}
+	}
+}
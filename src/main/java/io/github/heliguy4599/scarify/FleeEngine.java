@@ -0,0 +1,48 @@
+package io.github.heliguy4599.scarify;
+
+// Per-world state shared by the flee decisions of every mob in the world.
+// Doesn't know about the game itself, the snapshot is filled in by whoever drives it before each onStartTick().
+public class FleeEngine {
+	public final ScaryPlayerSnapshot scaryPlayers = new ScaryPlayerSnapshot();
+	public final FleeScheduler fleeScheduler = new FleeScheduler();
+	public final HerdCoordinator herdCoordinator = new HerdCoordinator();
+	public final VisibilityCache visibilityCache = new VisibilityCache();
+	public final FleePathQueue fleePathQueue = new FleePathQueue();
+	public final FearPropagator fearPropagator = new FearPropagator();
+	public final FleeFlowFields flowFields = new FleeFlowFields();
+	public final ThreatSelector threatSelector = new ThreatSelector();
+	// Set while something in the snapshot can scare mobs. Flee decisions don't do anything while it's clear.
+	private boolean armed = false;
+
+	// Called before any mob in the world ticks, once the snapshot holds this tick's threats
+	public void onStartTick(FleeWorld world) {
+		if (scaryPlayers.isEmpty()) {
+			if (armed) {
+				disarm();
+			}
+			return;
+		}
+		armed = true;
+		fleeScheduler.onStartTick(world);
+		herdCoordinator.onStartTick(world.getTime());
+		visibilityCache.onStartTick(world);
+		fleePathQueue.onStartTick(world);
+		fearPropagator.onStartTick(world, scaryPlayers);
+		flowFields.onStartTick(world, scaryPlayers);
+		threatSelector.onStartTick(world, this);
+	}
+
+	public boolean isArmed() {
+		return armed;
+	}
+
+	// Nothing here can scare mobs anymore, so let go of everything kept for the last threat
+	private void disarm() {
+		armed = false;
+		herdCoordinator.clear();
+		visibilityCache.clear();
+		fleePathQueue.clear();
+		flowFields.clear();
+		threatSelector.clear();
+	}
+}
@@ -0,0 +1,26 @@
+package io.github.heliguy4599.scarify;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JFR event for one FleeFromPlayerGoal evaluation, emitted while /scarify stats is enabled
+@Name("scarify.FleeEvaluation")
+@Label("Flee Evaluation")
+@Category("Scarify")
+@Description("A mob deciding whether to flee from a scary player")
+@StackTrace(false)
+public class FleeEvaluationEvent extends jdk.jfr.Event {
+	@Label("Mob Type")
+	public String mobType;
+
+	@Label("Outcome")
+	public String outcome;
+
+	@Label("Evaluation Time")
+	@Timespan(Timespan.NANOSECONDS)
+	public long evaluationTime;
+}
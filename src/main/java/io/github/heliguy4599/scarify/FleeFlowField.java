@@ -0,0 +1,145 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.minecraft.entity.ai.pathing.Path;
+import net.minecraft.entity.ai.pathing.PathNode;
+import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.Nullable;
+
+// Walking distance from one scary player over the surface around them, worked out once for every mob nearby.
+// A fleeing mob climbs the distance gradient instead of probing random targets and searching a path to one.
+// Immutable once computed, so it's built on a worker thread and read on the server thread.
+public final class FleeFlowField {
+	// Height of a column that can't be stood on or wasn't loaded
+	public static final int BLOCKED = Integer.MIN_VALUE;
+	// Columns covered on each side of the player
+	public static final int RADIUS = 32;
+	public static final int SIZE = RADIUS * 2 + 1;
+	// Same limits mobs have when walking: one block up, a few blocks down
+	private static final int MAX_STEP_UP = 1;
+	private static final int MAX_DROP = 3;
+	// How far a flee path follows the gradient, and the shortest one worth taking instead of a full search
+	private static final int FLEE_STEPS = 16;
+	private static final int MIN_FLEE_STEPS = 4;
+	// A mob further than this above or below the surface is inside something, like a cave or a house
+	private static final int MAX_SURFACE_OFFSET = 2;
+	private static final int[] STEP_X = {1, -1, 0, 0};
+	private static final int[] STEP_Z = {0, 0, 1, -1};
+
+	public final int originX;
+	public final int originZ;
+	// The world tick the surface was sampled on
+	public final long time;
+	private final int[] heights;
+	// Steps from the player's column, or -1 where the player can't walk to
+	private final int[] distances;
+
+	private FleeFlowField(int originX, int originZ, long time, int[] heights, int[] distances) {
+		this.originX = originX;
+		this.originZ = originZ;
+		this.time = time;
+		this.heights = heights;
+		this.distances = distances;
+	}
+
+	// Breadth-first over the sampled surface, from the player's column outwards. Runs on a worker thread.
+	// heights is SIZE by SIZE, row by row along x, with the player's column in the middle.
+	public static FleeFlowField compute(int originX, int originZ, long time, int[] heights) {
+		final int[] distances = new int[SIZE * SIZE];
+		Arrays.fill(distances, -1);
+		final int start = RADIUS * SIZE + RADIUS;
+		if (heights[start] != BLOCKED) {
+			final int[] queue = new int[SIZE * SIZE];
+			int head = 0;
+			int tail = 0;
+			distances[start] = 0;
+			queue[tail++] = start;
+			while (head < tail) {
+				final int cell = queue[head++];
+				final int cellX = cell % SIZE;
+				final int cellZ = cell / SIZE;
+				for (int direction = 0; direction < STEP_X.length; direction++) {
+					final int nextX = cellX + STEP_X[direction];
+					final int nextZ = cellZ + STEP_Z[direction];
+					if (nextX < 0 || nextX >= SIZE || nextZ < 0 || nextZ >= SIZE) {
+						continue;
+					}
+					final int next = nextZ * SIZE + nextX;
+					if (distances[next] < 0 && canStep(heights, cell, next)) {
+						distances[next] = distances[cell] + 1;
+						queue[tail++] = next;
+					}
+				}
+			}
+		}
+		return new FleeFlowField(originX, originZ, time, heights, distances);
+	}
+
+	// Whether a mob can walk from one column to the next
+	private static boolean canStep(int[] heights, int from, int to) {
+		final int fromHeight = heights[from];
+		final int toHeight = heights[to];
+		return toHeight != BLOCKED && toHeight - fromHeight <= MAX_STEP_UP && fromHeight - toHeight <= MAX_DROP;
+	}
+
+	// A path from the mob's column along the gradient away from the player, or null when the field can't help,
+	// like when the mob is outside it, off the surface, or cornered
+	@Nullable
+	public Path findFleePath(double x, double y, double z) {
+		final int blockX = (int) Math.floor(x);
+		final int blockZ = (int) Math.floor(z);
+		int cellX = blockX - originX + RADIUS;
+		int cellZ = blockZ - originZ + RADIUS;
+		if (cellX < 0 || cellX >= SIZE || cellZ < 0 || cellZ >= SIZE) {
+			return null;
+		}
+		int cell = cellZ * SIZE + cellX;
+		if (distances[cell] < 0 || Math.abs(heights[cell] - (int) Math.floor(y)) > MAX_SURFACE_OFFSET) {
+			return null;
+		}
+
+		final List<PathNode> nodes = new ArrayList<>(FLEE_STEPS);
+		for (int step = 0; step < FLEE_STEPS; step++) {
+			final int next = nextCellAway(cell, cellX, cellZ);
+			if (next < 0) {
+				break;
+			}
+			cell = next;
+			cellX = cell % SIZE;
+			cellZ = cell / SIZE;
+			nodes.add(new PathNode(cellX - RADIUS + originX, heights[cell], cellZ - RADIUS + originZ));
+		}
+		if (nodes.size() < MIN_FLEE_STEPS) {
+			return null;
+		}
+		final PathNode last = nodes.get(nodes.size() - 1);
+		return new Path(nodes, new BlockPos(last.x, last.y, last.z), true);
+	}
+
+	// The neighbour one step further from the player, preferring the one furthest from it in a straight line,
+	// or -1 at a dead end or the edge of the field
+	private int nextCellAway(int cell, int cellX, int cellZ) {
+		int best = -1;
+		int bestSpread = -1;
+		for (int direction = 0; direction < STEP_X.length; direction++) {
+			final int nextX = cellX + STEP_X[direction];
+			final int nextZ = cellZ + STEP_Z[direction];
+			if (nextX < 0 || nextX >= SIZE || nextZ < 0 || nextZ >= SIZE) {
+				continue;
+			}
+			final int next = nextZ * SIZE + nextX;
+			if (distances[next] != distances[cell] + 1 || !canStep(heights, cell, next)) {
+				continue;
+			}
+			final int spread = (nextX - RADIUS) * (nextX - RADIUS) + (nextZ - RADIUS) * (nextZ - RADIUS);
+			if (spread > bestSpread) {
+				best = next;
+				bestSpread = spread;
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,113 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Flow field mode, turned on with the scarifyFlowFields gamerule. Keeps a FleeFlowField around each scary player.
+// The surface is sampled on the server thread and the field is computed on a worker, and until it's done
+// mobs keep using the last one. Fields are only redone once their player has moved or they've gotten old.
+public class FleeFlowFields {
+	private static final Logger LOGGER = LoggerFactory.getLogger(Scarify.MOD_ID);
+	// Blocks a player can move from where their field was sampled before it's redone
+	private static final int RECOMPUTE_DISTANCE = 8;
+	private static final long MAX_AGE_TICKS = 100;
+	// Surface samples per world tick, so a crowd of players arriving at once is spread over a few ticks
+	private static final int MAX_SAMPLES_PER_TICK = 4;
+
+	private static class PlayerField {
+		@Nullable
+		FleeFlowField field;
+		@Nullable
+		CompletableFuture<FleeFlowField> pending;
+		long seenTick;
+	}
+
+	private final Int2ObjectOpenHashMap<PlayerField> fields = new Int2ObjectOpenHashMap<>();
+	private boolean enabled = false;
+	private long tick = 0;
+	// Where the next tick's samples start, so every player gets a turn when more need redoing than there's room for
+	private int sampleCursor = 0;
+
+	// Called once the snapshot holds this tick's threats
+	public void onStartTick(FleeWorld world, ScaryPlayerSnapshot snapshot) {
+		final boolean wasEnabled = enabled;
+		enabled = world.isFlowFieldMode();
+		if (!enabled) {
+			if (wasEnabled) {
+				clear();
+			}
+			return;
+		}
+		tick = world.getTime();
+
+		final int count = snapshot.getIndex().size();
+		final int start = count == 0 ? 0 : sampleCursor % count;
+		int samples = 0;
+		for (int n = 0; n < count; n++) {
+			final int i = (start + n) % count;
+			final FleeThreat threat = snapshot.getThreat(i);
+			PlayerField state = fields.get(threat.getId());
+			if (state == null) {
+				state = new PlayerField();
+				fields.put(threat.getId(), state);
+			}
+			state.seenTick = tick;
+
+			if (state.pending != null && state.pending.isDone()) {
+				try {
+					state.field = state.pending.getNow(state.field);
+				} catch (CompletionException e) {
+					// Mobs keep the last field, and it's sampled again below
+					LOGGER.error("Failed to compute a flee flow field", e.getCause());
+				}
+				state.pending = null;
+			}
+			if (state.pending == null && samples < MAX_SAMPLES_PER_TICK && isStale(state.field, threat)) {
+				state.pending = sample(world, threat);
+				samples++;
+				sampleCursor = i + 1;
+			}
+		}
+		// Forget players who left the world or stopped being scary
+		fields.values().removeIf(state -> state.seenTick != tick);
+	}
+
+	private boolean isStale(@Nullable FleeFlowField field, FleeThreat threat) {
+		if (field == null) {
+			return true;
+		}
+		return tick - field.time >= MAX_AGE_TICKS
+			|| Math.abs((int) Math.floor(threat.getX()) - field.originX) >= RECOMPUTE_DISTANCE
+			|| Math.abs((int) Math.floor(threat.getZ()) - field.originZ) >= RECOMPUTE_DISTANCE;
+	}
+
+	private CompletableFuture<FleeFlowField> sample(FleeWorld world, FleeThreat threat) {
+		final int originX = (int) Math.floor(threat.getX());
+		final int originZ = (int) Math.floor(threat.getZ());
+		final int[] heights = new int[FleeFlowField.SIZE * FleeFlowField.SIZE];
+		world.sampleSurface(originX - FleeFlowField.RADIUS, originZ - FleeFlowField.RADIUS, FleeFlowField.SIZE, heights);
+		final long time = tick;
+		return CompletableFuture.supplyAsync(() -> FleeFlowField.compute(originX, originZ, time, heights), world.getBackgroundExecutor());
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	// The threat's latest finished field, or null while the first one is still being computed
+	@Nullable
+	public FleeFlowField get(FleeThreat threat) {
+		final PlayerField state = fields.get(threat.getId());
+		return state == null ? null : state.field;
+	}
+
+	// Fields still being computed finish on their own and are dropped
+	public void clear() {
+		fields.clear();
+	}
+}
@@ -1,11 +1,7 @@
 package io.github.heliguy4599.scarify;
 
-import java.lang.reflect.Method;
 import java.util.EnumSet;
-import java.util.HashMap;
-import java.util.Map;
 
-import net.minecraft.entity.Entity;
 import net.minecraft.entity.Tameable;
 import net.minecraft.entity.ai.NoPenaltyTargeting;
 import net.minecraft.entity.ai.goal.Goal;
@@ -16,26 +12,36 @@ import net.minecraft.entity.mob.PathAwareEntity;
 import net.minecraft.entity.passive.VillagerEntity;
 import net.minecraft.entity.passive.WanderingTraderEntity;
 import net.minecraft.entity.player.PlayerEntity;
+import net.minecraft.registry.Registries;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.Vec3d;
 import org.jetbrains.annotations.Nullable;
 
-public class FleeFromPlayerGoal extends Goal {
+// Hooks a mob's FleeDecision into its goal selector, and backs the FleeMob it decides for with the real entity
+public class FleeFromPlayerGoal extends Goal implements FleeMob {
     protected final PathAwareEntity mob;
-    private final double speed;
-    @Nullable
-    protected PlayerEntity targetPlayer;
-    @Nullable
-    protected Path fleePath;
+    private double speed = Double.NaN;
     protected final EntityNavigation fleeingEntityNavigation;
-    private final ConfigFile configFile;
+    private final FleeNavigation navigation;
+    @Nullable
+    private ScarifyWorldState worldState;
+    private final FleeDecision decision;
 
-    public FleeFromPlayerGoal(PathAwareEntity mob, ConfigFile _configFile) {
+    public FleeFromPlayerGoal(PathAwareEntity mob) {
         this.mob = mob;
-        this.configFile = _configFile;
 
         this.fleeingEntityNavigation = mob.getNavigation();
+        this.navigation = new MobNavigation(mob, this.fleeingEntityNavigation);
+        this.decision = new FleeDecision(this);
         this.setControls(EnumSet.of(Control.MOVE));
+    }
 
+    // Worked out the first time the mob flees, since most mobs never do
+    @Override
+    public double getFleeSpeed() {
+        if (!Double.isNaN(this.speed)) {
+            return this.speed;
+        }
         double mobSpeed = this.mob.getAttributeValue(EntityAttributes.GENERIC_MOVEMENT_SPEED);
         if (this.mob instanceof VillagerEntity) {
             mobSpeed += 0.2;
@@ -45,109 +51,154 @@ public class FleeFromPlayerGoal extends Goal {
             mobSpeed += 1.3;
         }
         this.speed = mobSpeed;
+        return mobSpeed;
     }
 
     @Override
     public boolean canStart() {
-        final var world = this.mob.getWorld();
-        if (!world.getGameRules().getBoolean(Scarify.ENABLE_SCARIFY)) {
-            return false;
-        }
-        if (this.mob instanceof Tameable tMob && tMob.getOwner() != null) {
-            // Don't make tamed mobs scared
-            return false;
-        }
-        this.targetPlayer = getClosestPlayerInRange();
-        if (this.targetPlayer == null) {
+        final var state = getWorldState();
+        if (state == null) {
             return false;
         }
-        Vec3d vec3d = NoPenaltyTargeting.findFrom(this.mob, 16, 7, this.targetPlayer.getPos());
-        if (vec3d == null) {
-            return false;
-        }
-        if (this.targetPlayer.squaredDistanceTo(vec3d.x, vec3d.y, vec3d.z) < this.targetPlayer.squaredDistanceTo(this.mob)) {
-            return false;
+        return this.decision.canStart(state);
+    }
+
+    @Nullable
+    private ScarifyWorldState getWorldState() {
+        if (!(this.mob.getWorld() instanceof ServerWorld world)) {
+            return null;
         }
-        this.fleePath = this.fleeingEntityNavigation.findPathTo(vec3d.x, vec3d.y, vec3d.z, 0);
-        return this.fleePath != null;
-    }
-
-    public PlayerEntity getClosestPlayerInRange() {
-        final var mobsInRange = new HashMap<PlayerEntity, Double>();
-
-        for (var player : this.mob.getWorld().getPlayers()) {
-            String playerName = player.getName().getString();
-            boolean playerIsScary = configFile.getSectionNames().contains(playerName);
-            if (
-                !playerIsScary
-                || player.isCreative()
-                || player.isSpectator()
-                || player.isInvisible()
-                || !mob.canSee(player)
-            ) {
-                continue;
-            }
-            var maxDistance = 0.0;
-            if (configFile.getSectionData(playerName).getOrDefault("distanceOverride", null) instanceof Double configDistance) {
-                maxDistance = configDistance;
-            } else {
-                maxDistance = this.mob.getAttributeValue(EntityAttributes.GENERIC_FOLLOW_RANGE) * getVisibilityScale(player);
-            }
-            maxDistance *= maxDistance;
-            final var mobDistance = this.mob.squaredDistanceTo(player);
-            if (mobDistance < maxDistance) {
-                mobsInRange.put(player, mobDistance);
-            }
+        if (this.worldState == null || this.worldState.world != world) {
+            this.worldState = ScarifyWorldState.get(world);
         }
-
-        // Returns the closest player of the valid players, or null
-        return (
-            mobsInRange
-            .entrySet()
-            .stream()
-            .min(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElse(null)
-        );
+        return this.worldState;
     }
 
     // If Pehkui is installed, use get the visibility scale of a given player
     public static float getVisibilityScale(PlayerEntity player) {
-        if (!Scarify.getIsPehkuiLoaded()) return 1.0F;
+        return PehkuiCompat.getVisibilityScale(player);
+    }
 
-        try {
-            // Access the ScaleUtils class dynamically
-            Class<?> scaleUtilsClass = Class.forName("virtuoel.pehkui.util.ScaleUtils");
+    FleeDecision getDecision() {
+        return this.decision;
+    }
 
-            // Access the getVisibilityScale method that takes an Entity and tickDelta
-            Method getVisibilityScaleMethod = scaleUtilsClass.getDeclaredMethod("getVisibilityScale", Entity.class);
+    @Override
+    public boolean shouldContinue() {
+        return this.decision.shouldContinue();
+    }
 
-            // Make the method accessible in case it's private or protected
-            getVisibilityScaleMethod.setAccessible(true);
+    @Override
+    public void start() {
+        this.decision.start();
+    }
 
-            // Invoke the method on ScaleUtils class with the provided entity and tickDelta
-            return (float) getVisibilityScaleMethod.invoke(null, player);
-        } catch (Exception e) {
-            Scarify.LOGGER.error("Pehkui was loaded, but we could not get the visibility scale. See error below:");
-            Scarify.LOGGER.error(e.toString());
-        }
+    @Override
+    public void tick() {
+        this.decision.tick();
+    }
 
-        // Return a default value or throw an exception if reflection fails
-        return 1.0F; // Default scaling factor (no scaling)
+    @Override
+    public void stop() {
+        this.decision.stop();
     }
 
     @Override
-    public boolean shouldContinue() {
-        return !this.fleeingEntityNavigation.isIdle();
+    public int getId() {
+        return this.mob.getId();
     }
 
     @Override
-    public void start() {
-        this.fleeingEntityNavigation.startMovingAlong(this.fleePath, this.speed);
+    public double getX() {
+        return this.mob.getX();
     }
 
     @Override
-    public void stop() {
-        this.targetPlayer = null;
+    public double getY() {
+        return this.mob.getY();
+    }
+
+    @Override
+    public double getZ() {
+        return this.mob.getZ();
+    }
+
+    @Override
+    public boolean isAlive() {
+        return this.mob.isAlive();
+    }
+
+    @Override
+    public Object getKind() {
+        return this.mob.getType();
+    }
+
+    @Override
+    public String getKindName() {
+        return Registries.ENTITY_TYPE.getId(this.mob.getType()).toString();
+    }
+
+    @Override
+    public double getFollowRange() {
+        return this.mob.getAttributeValue(EntityAttributes.GENERIC_FOLLOW_RANGE);
+    }
+
+    @Override
+    public boolean isTamed() {
+        return this.mob instanceof Tameable tMob && tMob.getOwner() != null;
+    }
+
+    // Threats in a server world are always players
+    @Override
+    public boolean canSee(FleeThreat threat) {
+        return this.mob.canSee(((PlayerThreat) threat).player);
+    }
+
+    @Override
+    public FleeNavigation getNavigation() {
+        return this.navigation;
+    }
+
+    private static class MobNavigation implements FleeNavigation {
+        private final PathAwareEntity mob;
+        private final EntityNavigation navigation;
+
+        private MobNavigation(PathAwareEntity mob, EntityNavigation navigation) {
+            this.mob = mob;
+            this.navigation = navigation;
+        }
+
+        @Override
+        @Nullable
+        public Vec3d findFleeTarget(FleeThreat threat) {
+            return NoPenaltyTargeting.findFrom(this.mob, 16, 7, new Vec3d(threat.getX(), threat.getY(), threat.getZ()));
+        }
+
+        @Override
+        @Nullable
+        public Path findPathTo(Vec3d destination, int reachDistance) {
+            return this.navigation.findPathTo(destination.x, destination.y, destination.z, reachDistance);
+        }
+
+        @Override
+        public void startMovingAlong(Path path, double speed) {
+            this.navigation.startMovingAlong(path, speed);
+        }
+
+        @Override
+        @Nullable
+        public Path getCurrentPath() {
+            return this.navigation.getCurrentPath();
+        }
+
+        @Override
+        public boolean isIdle() {
+            return this.navigation.isIdle();
+        }
+
+        @Override
+        public void stop() {
+            this.navigation.stop();
+        }
     }
 }
@@ -0,0 +1,42 @@
+package io.github.heliguy4599.scarify;
+
+// A mob that can be scared, as seen by FleeDecision
+public interface FleeMob {
+	int getId();
+
+	double getX();
+
+	double getY();
+
+	double getZ();
+
+	boolean isAlive();
+
+	// Mobs only share flee searches with mobs of the same kind
+	Object getKind();
+
+	// Only used to label stats
+	String getKindName();
+
+	double getFollowRange();
+
+	double getFleeSpeed();
+
+	boolean isTamed();
+
+	// A line-of-sight check, which is a raycast on a server
+	boolean canSee(FleeThreat threat);
+
+	FleeNavigation getNavigation();
+
+	default double squaredDistanceTo(double x, double y, double z) {
+		final double dx = getX() - x;
+		final double dy = getY() - y;
+		final double dz = getZ() - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	default double squaredDistanceTo(FleeThreat threat) {
+		return squaredDistanceTo(threat.getX(), threat.getY(), threat.getZ());
+	}
+}
@@ -0,0 +1,26 @@
+package io.github.heliguy4599.scarify;
+
+import net.minecraft.entity.ai.pathing.Path;
+import net.minecraft.util.math.Vec3d;
+import org.jetbrains.annotations.Nullable;
+
+// How a mob finds somewhere to run to and gets there
+public interface FleeNavigation {
+	// Somewhere away from the threat the mob could walk to, or null if nowhere was found
+	@Nullable
+	Vec3d findFleeTarget(FleeThreat threat);
+
+	@Nullable
+	Path findPathTo(Vec3d destination, int reachDistance);
+
+	void startMovingAlong(Path path, double speed);
+
+	// The path the mob is walking, or null when it isn't walking one
+	@Nullable
+	Path getCurrentPath();
+
+	boolean isIdle();
+
+	// Drops the path being walked, leaving the mob where it is
+	void stop();
+}
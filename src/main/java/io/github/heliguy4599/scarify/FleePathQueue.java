@@ -0,0 +1,102 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.PriorityQueue;
+
+import net.minecraft.util.math.Vec3d;
+
+// Flee path searches for one world, run at the start of each tick up to a count and time budget.
+// Mobs with the closest threat are served first. The rest wait, and don't start fleeing until their path is ready.
+public class FleePathQueue {
+	// Requests that waited this long are dropped, their mob will have moved on
+	private static final int MAX_REQUEST_AGE_TICKS = 40;
+
+	public static class Request {
+		final FleeDecision goal;
+		final FleeThreat player;
+		final Vec3d destination;
+		final int reachDistance;
+		// Set for herd leaders, so followers can share the path once it's found
+		final boolean leadsHerd;
+		final double threatDistanceSq;
+		final long tick;
+
+		private Request(FleeDecision goal, FleeThreat player, Vec3d destination, int reachDistance, boolean leadsHerd, double threatDistanceSq, long tick) {
+			this.goal = goal;
+			this.player = player;
+			this.destination = destination;
+			this.reachDistance = reachDistance;
+			this.leadsHerd = leadsHerd;
+			this.threatDistanceSq = threatDistanceSq;
+			this.tick = tick;
+		}
+	}
+
+	private final PriorityQueue<Request> requests = new PriorityQueue<>(
+		(a, b) -> Double.compare(a.threatDistanceSq, b.threatDistanceSq)
+	);
+	private long tick = 0;
+
+	// What happened during the last tick, for /scarify pathQueue
+	private int lastSearches = 0;
+	private long lastNanos = 0;
+	private int lastBacklog = 0;
+
+	public Request enqueue(FleeDecision goal, FleeThreat player, Vec3d destination, int reachDistance, boolean leadsHerd, double threatDistanceSq) {
+		final var request = new Request(goal, player, destination, reachDistance, leadsHerd, threatDistanceSq, tick);
+		requests.add(request);
+		return request;
+	}
+
+	public void onStartTick(FleeWorld world) {
+		tick = world.getTime();
+		final int maxSearches = world.getPathBudget();
+		final long budgetNanos = world.getPathBudgetMicros() * 1000L;
+
+		// Far requests may never reach the head of the queue under load, so drop stale ones wherever they are
+		requests.removeIf(this::isStale);
+		final long startTime = System.nanoTime();
+		int searches = 0;
+		while (searches < maxSearches && System.nanoTime() - startTime < budgetNanos) {
+			final Request request = requests.poll();
+			if (request == null) {
+				break;
+			}
+			request.goal.onPathSearched(request, request.goal.searchPath(request));
+			searches++;
+			ScarifyStats.recordPathSearch();
+		}
+
+		lastSearches = searches;
+		lastNanos = System.nanoTime() - startTime;
+		lastBacklog = requests.size();
+	}
+
+	// Old requests and ones whose mob moved on or died. Their goals are told, so they can evaluate again.
+	private boolean isStale(Request request) {
+		if (tick - request.tick <= MAX_REQUEST_AGE_TICKS && request.goal.isWaitingFor(request)) {
+			return false;
+		}
+		request.goal.onPathSearched(request, null);
+		return true;
+	}
+
+	// Drops every waiting request. Their goals notice on their own once the world is armed again.
+	public void clear() {
+		requests.clear();
+		lastSearches = 0;
+		lastNanos = 0;
+		lastBacklog = 0;
+	}
+
+	public int getLastSearches() {
+		return lastSearches;
+	}
+
+	public long getLastNanos() {
+		return lastNanos;
+	}
+
+	public int getLastBacklog() {
+		return lastBacklog;
+	}
+}
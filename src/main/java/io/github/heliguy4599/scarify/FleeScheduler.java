@@ -0,0 +1,48 @@
+package io.github.heliguy4599.scarify;
+
+// Spreads flee decision evaluations across ticks and caps how long they can take per world tick.
+// Each mob gets a fixed slot based on its entity id. A mob that finds the budget spent is let in on the next tick instead.
+// Slots follow server ticks, since a mob's goal selector only polls canStart() when server ticks plus its id is even,
+// and the interval is even, so every slot lands on a tick the mob is polled.
+public class FleeScheduler {
+	public static final int EVALUATION_INTERVAL = 4;
+	// Above this many milliseconds per tick the budget starts shrinking
+	private static final float BUSY_MSPT = 40.0F;
+	private static final float MIN_BUDGET_FRACTION = 0.1F;
+
+	private long tick = 0;
+	private long budgetNanos = 0;
+	private long spentNanos = 0;
+
+	public void onStartTick(FleeWorld world) {
+		tick = world.getServerTicks();
+		spentNanos = 0;
+
+		long budgetMicros = world.getEvaluationBudgetMicros();
+		final float mspt = world.getTickTime();
+		if (mspt > BUSY_MSPT) {
+			// Scale linearly down to the minimum as the tick approaches a full 50ms
+			final float fraction = Math.max(MIN_BUDGET_FRACTION, (50.0F - mspt) / (50.0F - BUSY_MSPT));
+			budgetMicros = (long) (budgetMicros * fraction);
+		}
+		budgetNanos = budgetMicros * 1000L;
+	}
+
+	// A mob is due in its own slot, or on any tick if it missed its slot because of the budget
+	public boolean isDue(int mobId, boolean missedSlot) {
+		return missedSlot || Math.floorMod(mobId + tick, EVALUATION_INTERVAL) == 0;
+	}
+
+	public boolean hasBudget() {
+		return spentNanos < budgetNanos;
+	}
+
+	// Time spent evaluating goals so far this tick
+	public long getSpentNanos() {
+		return spentNanos;
+	}
+
+	public void recordEvaluation(long nanos) {
+		spentNanos += nanos;
+	}
+}
@@ -0,0 +1,21 @@
+package io.github.heliguy4599.scarify;
+
+// Something mobs flee from. On a server this is always a scary player.
+public interface FleeThreat {
+	int getId();
+
+	double getX();
+
+	double getY();
+
+	double getZ();
+
+	boolean isAlive();
+
+	default double squaredDistanceTo(double x, double y, double z) {
+		final double dx = getX() - x;
+		final double dy = getY() - y;
+		final double dz = getZ() - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+}
@@ -0,0 +1,41 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+// The world a flee decision runs in, as far as budgets, time, finding mobs and the lay of the land go.
+// ScarifyWorldState reads it off a ServerWorld, the simulator makes it up.
+public interface FleeWorld {
+	long getTime();
+
+	// The server's tick counter, which goal selectors poll canStart() by. Shared by every world,
+	// unlike world time, which can be one ahead in worlds that tick after the overworld.
+	long getServerTicks();
+
+	// Milliseconds per tick, averaged by the server
+	float getTickTime();
+
+	int getEvaluationBudgetMicros();
+
+	int getRaycastBudget();
+
+	int getPathBudget();
+
+	int getPathBudgetMicros();
+
+	boolean isPushPropagation();
+
+	// Hands the flee decision of every mob with one within the box around the point to the action
+	void forEachFleeMobNear(double x, double y, double z, double radius, Consumer<FleeDecision> action);
+
+	boolean isFlowFieldMode();
+
+	boolean isParallelThreatSelection();
+
+	// Fills heights with the Y a mob stands at on top of each column of the size by size square, row by row along x,
+	// or FleeFlowField.BLOCKED where it can't stand or the chunk isn't loaded
+	void sampleSurface(int minX, int minZ, int size, int[] heights);
+
+	// Where work that doesn't touch the world can run
+	Executor getBackgroundExecutor();
+}
@@ -0,0 +1,91 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.minecraft.entity.ai.pathing.Path;
+import net.minecraft.entity.ai.pathing.PathNode;
+import net.minecraft.util.math.Vec3d;
+import org.jetbrains.annotations.Nullable;
+
+// Lets a group of nearby mobs of the same type, fleeing the same player, share one flee search.
+// The first mob to find a flee path becomes the herd's leader. The rest head to the same spot, offset by where they stand.
+public class HerdCoordinator {
+	// How close a mob must be to the leader to join its herd
+	private static final double HERD_RADIUS = 6.0;
+	// Mobs this close to where the leader started can walk the leader's path as-is
+	private static final double PATH_REUSE_RADIUS = 2.0;
+	private static final int PLAN_LIFETIME_TICKS = 20;
+
+	public static class Plan {
+		public final Object kind;
+		public final int playerId;
+		public final Vec3d leaderPos;
+		public final Vec3d destination;
+		public final Path path;
+		private final long tick;
+
+		private Plan(Object kind, int playerId, Vec3d leaderPos, Vec3d destination, Path path, long tick) {
+			this.kind = kind;
+			this.playerId = playerId;
+			this.leaderPos = leaderPos;
+			this.destination = destination;
+			this.path = path;
+			this.tick = tick;
+		}
+	}
+
+	private final List<Plan> plans = new ArrayList<>();
+	private long tick = 0;
+
+	public void onStartTick(long worldTime) {
+		tick = worldTime;
+		plans.removeIf(plan -> plan.tick + PLAN_LIFETIME_TICKS < tick);
+	}
+
+	public void clear() {
+		plans.clear();
+	}
+
+	@Nullable
+	public Plan findPlan(FleeMob mob, FleeThreat player) {
+		for (Plan plan : plans) {
+			if (
+				plan.kind == mob.getKind()
+				&& plan.playerId == player.getId()
+				&& mob.squaredDistanceTo(plan.leaderPos.x, plan.leaderPos.y, plan.leaderPos.z) < HERD_RADIUS * HERD_RADIUS
+			) {
+				return plan;
+			}
+		}
+		return null;
+	}
+
+	public void addPlan(FleeMob leader, FleeThreat player, Vec3d destination, Path path) {
+		final Vec3d leaderPos = new Vec3d(leader.getX(), leader.getY(), leader.getZ());
+		plans.add(new Plan(leader.getKind(), player.getId(), leaderPos, destination, path, tick));
+	}
+
+	// Where a follower should flee to, keeping its offset from the leader
+	public static Vec3d followerDestination(Plan plan, FleeMob follower) {
+		return plan.destination.add(
+			follower.getX() - plan.leaderPos.x,
+			0.0,
+			follower.getZ() - plan.leaderPos.z
+		);
+	}
+
+	public static boolean canReusePath(Plan plan, FleeMob follower) {
+		return follower.squaredDistanceTo(plan.leaderPos.x, plan.leaderPos.y, plan.leaderPos.z) < PATH_REUSE_RADIUS * PATH_REUSE_RADIUS;
+	}
+
+	// Paths track their progress, so every follower needs its own copy of the leader's nodes
+	public static Path copyPath(Path path) {
+		final List<PathNode> nodes = new ArrayList<>(path.getLength());
+		for (int i = 0; i < path.getLength(); i++) {
+			final PathNode node = path.getNode(i);
+			nodes.add(node.copyWithNewPosition(node.x, node.y, node.z));
+		}
+		return new Path(nodes, path.getTarget(), path.reachesTarget());
+	}
+}
@@ -0,0 +1,221 @@
+package io.github.heliguy4599.scarify;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+
+import org.jetbrains.annotations.Nullable;
+
+// Read-only roster file, memory-mapped and binary-searched in place. Opening one only reads the header,
+// and a lookup only decodes the records it touches, so neither depends on how many players are in it.
+//
+// Layout, big-endian:
+//   header:  magic, version, record count, bound record count (ints)
+//   records: UUID most and least significant bits (0 and 0 when unbound), distance override or NaN,
+//            name offset and name length (ints), sorted by name the same way NameIndex sorts them
+//   bound:   indexes of the records that have a UUID (ints), sorted by UUID
+//   names:   the UTF-8 names, offsets are from the start of this table
+public final class MappedRoster {
+	private static final int MAGIC = 0x53434152; // "SCAR"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 16;
+	private static final int RECORD_BYTES = 32;
+
+	private final ByteBuffer buffer;
+	private final int count;
+	private final int boundCount;
+	private final int boundStart;
+	private final int namesStart;
+	// Only the header is checked on open, so damage further in is found by the lookups that run into it
+	private boolean reportedDamage = false;
+
+	private MappedRoster(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a Scarify roster file");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported roster file version " + buffer.getInt(4));
+		}
+		this.count = buffer.getInt(8);
+		this.boundCount = buffer.getInt(12);
+		final long boundStart = HEADER_BYTES + (long) count * RECORD_BYTES;
+		final long namesStart = boundStart + (long) boundCount * Integer.BYTES;
+		if (count < 0 || boundCount < 0 || boundCount > count || namesStart > buffer.limit()) {
+			throw new IOException("Truncated roster file");
+		}
+		this.boundStart = (int) boundStart;
+		this.namesStart = (int) namesStart;
+	}
+
+	public static MappedRoster open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("Roster file is too large to map: " + path);
+			}
+			// The mapping stays valid after the channel is closed
+			return new MappedRoster(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+		}
+	}
+
+	public int size() {
+		return count;
+	}
+
+	// The record's name, or null if it points outside the names table
+	@Nullable
+	public String getName(int index) {
+		final int record = recordStart(index);
+		final int offset = buffer.getInt(record + 24);
+		final int length = buffer.getInt(record + 28);
+		if (offset < 0 || length < 0 || (long) namesStart + offset + length > buffer.limit()) {
+			reportDamage("record " + index + " has a name outside the names table");
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		buffer.get(namesStart + offset, bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	@Nullable
+	public UUID getUuid(int index) {
+		final int record = recordStart(index);
+		final long most = buffer.getLong(record);
+		final long least = buffer.getLong(record + 8);
+		return most == 0 && least == 0 ? null : new UUID(most, least);
+	}
+
+	public double getDistanceOverride(int index) {
+		return buffer.getDouble(recordStart(index) + 16);
+	}
+
+	// Index of the record with this exact name, or -1
+	public int find(String name) {
+		int low = 0;
+		int high = count - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final String midName = getName(mid);
+			if (midName == null) {
+				return -1;
+			}
+			final int comparison = NameIndex.compare(midName, name);
+			if (comparison < 0) {
+				low = mid + 1;
+			} else if (comparison > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	// Index of the record bound to this UUID, or -1. Doesn't allocate, since it's looked up every tick.
+	public int findByUuid(UUID uuid) {
+		final long most = uuid.getMostSignificantBits();
+		final long least = uuid.getLeastSignificantBits();
+		int low = 0;
+		int high = boundCount - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int index = buffer.getInt(boundStart + mid * Integer.BYTES);
+			if (index < 0 || index >= count) {
+				reportDamage("bound record " + mid + " points to record " + index);
+				return -1;
+			}
+			final int record = recordStart(index);
+			int comparison = Long.compare(buffer.getLong(record), most);
+			if (comparison == 0) {
+				comparison = Long.compare(buffer.getLong(record + 8), least);
+			}
+			if (comparison < 0) {
+				low = mid + 1;
+			} else if (comparison > 0) {
+				high = mid - 1;
+			} else {
+				return index;
+			}
+		}
+		return -1;
+	}
+
+	// The record as a config section, the way it would look in scarify.cfg
+	public HashMap<String, Object> toSectionData(int index) {
+		final HashMap<String, Object> data = new HashMap<>();
+		final double distanceOverride = getDistanceOverride(index);
+		if (!Double.isNaN(distanceOverride)) {
+			data.put(ConfigMutation.DISTANCE_OVERRIDE_KEY, distanceOverride);
+		}
+		return data;
+	}
+
+	// Logged once, since the same damage is run into on every lookup that reaches it
+	private void reportDamage(String problem) {
+		if (!reportedDamage) {
+			reportedDamage = true;
+			Scarify.LOGGER.error("The Scarify roster file is damaged, " + problem + ". Players it affects are treated as not in it.");
+		}
+	}
+
+	private int recordStart(int index) {
+		return HEADER_BYTES + index * RECORD_BYTES;
+	}
+
+	// Writes the entries as a roster file. Sorting and encoding happen here, so the file can be read without either.
+	public static void write(Path path, Collection<ScaryRoster.Entry> entries) throws IOException {
+		final ScaryRoster.Entry[] sorted = entries.toArray(new ScaryRoster.Entry[0]);
+		Arrays.sort(sorted, (a, b) -> NameIndex.compare(a.name, b.name));
+
+		final byte[][] names = new byte[sorted.length][];
+		final List<Integer> bound = new ArrayList<>();
+		long namesLength = 0;
+		for (int i = 0; i < sorted.length; i++) {
+			names[i] = sorted[i].name.getBytes(StandardCharsets.UTF_8);
+			namesLength += names[i].length;
+			if (sorted[i].uuid != null) {
+				bound.add(i);
+			}
+		}
+		if (HEADER_BYTES + (long) sorted.length * (RECORD_BYTES + Integer.BYTES) + namesLength > Integer.MAX_VALUE) {
+			throw new IOException("Roster is too large for a roster file");
+		}
+		bound.sort((a, b) -> sorted[a].uuid.compareTo(sorted[b].uuid));
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 65536))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(sorted.length);
+			out.writeInt(bound.size());
+			int nameOffset = 0;
+			for (int i = 0; i < sorted.length; i++) {
+				final UUID uuid = sorted[i].uuid;
+				out.writeLong(uuid == null ? 0 : uuid.getMostSignificantBits());
+				out.writeLong(uuid == null ? 0 : uuid.getLeastSignificantBits());
+				out.writeDouble(sorted[i].distanceOverride);
+				out.writeInt(nameOffset);
+				out.writeInt(names[i].length);
+				nameOffset += names[i].length;
+			}
+			for (int index : bound) {
+				out.writeInt(index);
+			}
+			for (byte[] name : names) {
+				out.write(name);
+			}
+		}
+	}
+}
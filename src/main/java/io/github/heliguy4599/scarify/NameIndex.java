@@ -0,0 +1,106 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Locale;
+
+// Immutable, sorted set of player names for prefix lookups. Names sort case-insensitively, like completions are matched.
+// Changes return a new index, so one can be read from any thread while the server thread builds the next.
+public final class NameIndex {
+	public static final NameIndex EMPTY = new NameIndex(new String[0], new String[0]);
+	// Case-insensitive first, then exact, so names that only differ in case still have a stable order
+	private static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+	private final String[] names;
+	// The names in lower case, for prefix matching
+	private final String[] keys;
+
+	private NameIndex(String[] names, String[] keys) {
+		this.names = names;
+		this.keys = keys;
+	}
+
+	public static NameIndex of(Collection<String> names) {
+		final String[] sorted = names.toArray(new String[0]);
+		Arrays.sort(sorted, ORDER);
+		final String[] keys = new String[sorted.length];
+		for (int i = 0; i < sorted.length; i++) {
+			keys[i] = toKey(sorted[i]);
+		}
+		return new NameIndex(sorted, keys);
+	}
+
+	// Returns an index with the name added, or this index if it's already there
+	public NameIndex with(String name) {
+		final int i = Arrays.binarySearch(names, name, ORDER);
+		if (i >= 0) {
+			return this;
+		}
+		final int at = -i - 1;
+		return new NameIndex(insert(names, at, name), insert(keys, at, toKey(name)));
+	}
+
+	// Returns an index without the name, or this index if it isn't there
+	public NameIndex without(String name) {
+		final int at = Arrays.binarySearch(names, name, ORDER);
+		if (at < 0) {
+			return this;
+		}
+		return new NameIndex(remove(names, at), remove(keys, at));
+	}
+
+	public boolean contains(String name) {
+		return Arrays.binarySearch(names, name, ORDER) >= 0;
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	public String getName(int index) {
+		return names[index];
+	}
+
+	// Index of the first name that could start with the lower case prefix
+	public int prefixStart(String keyPrefix) {
+		int low = 0;
+		int high = keys.length;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (keys[mid].compareTo(keyPrefix) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	public boolean matches(int index, String keyPrefix) {
+		return index < keys.length && keys[index].startsWith(keyPrefix);
+	}
+
+	public static String toKey(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	public static int compare(String a, String b) {
+		return ORDER.compare(a, b);
+	}
+
+	private static String[] insert(String[] array, int at, String value) {
+		final String[] result = new String[array.length + 1];
+		System.arraycopy(array, 0, result, 0, at);
+		result[at] = value;
+		System.arraycopy(array, at, result, at + 1, array.length - at);
+		return result;
+	}
+
+	private static String[] remove(String[] array, int at) {
+		final String[] result = new String[array.length - 1];
+		System.arraycopy(array, 0, result, 0, at);
+		System.arraycopy(array, at + 1, result, at, array.length - at - 1);
+		return result;
+	}
+}
@@ -0,0 +1,85 @@
+package io.github.heliguy4599.scarify;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+
+import it.unimi.dsi.fastutil.ints.Int2FloatOpenHashMap;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.PlayerEntity;
+import org.jetbrains.annotations.Nullable;
+
+// Optional Pehkui integration. ScaleUtils.getVisibilityScale is looked up once, when the class is loaded,
+// and every scale is remembered per player for the rest of the server tick.
+public class PehkuiCompat {
+	private static final boolean LOADED = FabricLoader.getInstance().isModLoaded("pehkui");
+	@Nullable
+	private static final MethodHandle GET_VISIBILITY_SCALE = LOADED ? findVisibilityScale() : null;
+
+	// Set after the first failure, so a broken Pehkui costs one log message instead of one per mob per tick
+	private static boolean disabled = GET_VISIBILITY_SCALE == null;
+
+	// Scales for the current server tick, keyed by entity id. Only touched from the server thread.
+	private static final Int2FloatOpenHashMap scaleCache = new Int2FloatOpenHashMap();
+	private static int cacheTick = -1;
+
+	// Called from Scarify.onInitialize, so the lookup happens at startup instead of on the first mob
+	public static void init() {
+		if (LOADED && !disabled) {
+			Scarify.LOGGER.info("Pehkui detected, flee ranges will follow visibility scale");
+		}
+	}
+
+	public static boolean isLoaded() {
+		return LOADED;
+	}
+
+	public static float getVisibilityScale(PlayerEntity player) {
+		if (disabled) {
+			return 1.0F;
+		}
+
+		final var server = player.getServer();
+		if (server != null) {
+			final int tick = server.getTicks();
+			if (tick != cacheTick) {
+				scaleCache.clear();
+				cacheTick = tick;
+			} else if (scaleCache.containsKey(player.getId())) {
+				return scaleCache.get(player.getId());
+			}
+		}
+
+		float scale = 1.0F;
+		try {
+			scale = (float) GET_VISIBILITY_SCALE.invokeExact((Entity) player);
+		} catch (Throwable e) {
+			disabled = true;
+			Scarify.LOGGER.error("Pehkui was loaded, but we could not get the visibility scale. Ignoring Pehkui scales from now on. See error below:");
+			Scarify.LOGGER.error(e.toString());
+		}
+		if (server != null) {
+			scaleCache.put(player.getId(), scale);
+		}
+		return scale;
+	}
+
+	@Nullable
+	private static MethodHandle findVisibilityScale() {
+		try {
+			Class<?> scaleUtilsClass = Class.forName("virtuoel.pehkui.util.ScaleUtils");
+			Method getVisibilityScaleMethod = scaleUtilsClass.getDeclaredMethod("getVisibilityScale", Entity.class);
+			// Make the method accessible in case it's private or protected
+			getVisibilityScaleMethod.setAccessible(true);
+			return MethodHandles.lookup()
+				.unreflect(getVisibilityScaleMethod)
+				.asType(MethodType.methodType(float.class, Entity.class));
+		} catch (Exception e) {
+			Scarify.LOGGER.error("Pehkui was loaded, but ScaleUtils.getVisibilityScale could not be found. Ignoring Pehkui scales. See error below:");
+			Scarify.LOGGER.error(e.toString());
+			return null;
+		}
+	}
+}
@@ -6,66 +6,108 @@ import com.mojang.brigadier.suggestion.SuggestionProvider;
 import com.mojang.brigadier.suggestion.Suggestions;
 import com.mojang.brigadier.suggestion.SuggestionsBuilder;
 import net.minecraft.server.command.ServerCommandSource;
+import net.minecraft.util.Util;
 
-import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 
+// Suggests player names matching what's been typed, from the online players and the roster's name indexes.
+// Both indexes are immutable, so the matching runs on a worker thread instead of the server thread.
 public class PlayerSuggestion implements SuggestionProvider<ServerCommandSource> {
-    private ConfigFile configFile = null;
+    // More than a client can usefully show, without building a huge reply for an empty argument
+    private static final int MAX_SUGGESTIONS = 100;
+
+    // Kept up to date from the join and disconnect events on the server thread
+    private static volatile NameIndex onlinePlayers = NameIndex.EMPTY;
+
     private boolean shouldSearchInWorld = false;
-    private boolean excludeConfigFileEntries = false;
-    private String keyToCheck = "";
+    private boolean shouldSearchInRoster = false;
+    private boolean excludeRosterEntries = false;
+    private boolean requireDistanceOverride = false;
+
+    public static void onPlayerJoin(String name) {
+        onlinePlayers = onlinePlayers.with(name);
+    }
+
+    public static void onPlayerLeave(String name) {
+        onlinePlayers = onlinePlayers.without(name);
+    }
+
+    public static void clearOnlinePlayers() {
+        onlinePlayers = NameIndex.EMPTY;
+    }
 
     public PlayerSuggestion searchInWorld() {
         shouldSearchInWorld = true;
         return this;
     }
 
-    public PlayerSuggestion excludeConfigEntries(ConfigFile _configFile) {
-        configFile = _configFile;
-        excludeConfigFileEntries = true;
+    public PlayerSuggestion excludeRosterEntries() {
+        excludeRosterEntries = true;
         return this;
     }
 
-    public PlayerSuggestion searchInConfigFile(ConfigFile _configFile) {
-        configFile = _configFile;
+    public PlayerSuggestion searchInRoster() {
+        shouldSearchInRoster = true;
         return this;
     }
 
-    public PlayerSuggestion checkForKey(String key) {
-        keyToCheck = key;
+    // Only suggest roster entries that have a distance override
+    public PlayerSuggestion withDistanceOverride() {
+        requireDistanceOverride = true;
         return this;
     }
 
     @Override
     public CompletableFuture<Suggestions> getSuggestions(CommandContext<ServerCommandSource> context, SuggestionsBuilder builder) throws CommandSyntaxException {
-        Set<String> toAdd = new TreeSet<>();
-        ServerCommandSource source = context.getSource();
+        // Grab the current roster and index here, the worker sees them as they were when the player typed
+        final ScaryRoster roster = ScaryRoster.get();
+        final NameIndex online = shouldSearchInWorld ? onlinePlayers : NameIndex.EMPTY;
+        return CompletableFuture.supplyAsync(() -> suggest(builder, roster, online, getRosterNames(roster)), Util.getMainWorkerExecutor());
+    }
 
-        if (shouldSearchInWorld) {
-            toAdd.addAll(source.getPlayerNames());
+    // May build the roster's name indexes, which walks the whole roster, so it's only called on the worker
+    private NameIndex getRosterNames(ScaryRoster roster) {
+        if (!shouldSearchInRoster) {
+            return NameIndex.EMPTY;
         }
+        return requireDistanceOverride ? roster.getOverrideNames() : roster.getNames();
+    }
 
-        if (configFile != null) {
-            Set<String> configNames = configFile.getSectionNames();
+    // Walks both indexes from the typed prefix in order, like a merge, until enough names are found
+    private Suggestions suggest(SuggestionsBuilder builder, ScaryRoster roster, NameIndex online, NameIndex rosterNames) {
+        final String prefix = NameIndex.toKey(builder.getRemaining());
+        int onlineIndex = online.prefixStart(prefix);
+        int rosterIndex = rosterNames.prefixStart(prefix);
+        int suggested = 0;
 
-            if (excludeConfigFileEntries) {
-                toAdd.removeAll(configNames);
-            } else {
-                toAdd.addAll(configNames);
+        while (suggested < MAX_SUGGESTIONS) {
+            final String fromOnline = online.matches(onlineIndex, prefix) ? online.getName(onlineIndex) : null;
+            final String fromRoster = rosterNames.matches(rosterIndex, prefix) ? rosterNames.getName(rosterIndex) : null;
+            if (fromOnline == null && fromRoster == null) {
+                break;
             }
 
-            if (!keyToCheck.isEmpty()) {
-                toAdd.removeIf(name -> !playerEntryHasKey(name));
+            final String name;
+            if (fromOnline == null || (fromRoster != null && NameIndex.compare(fromRoster, fromOnline) <= 0)) {
+                name = fromRoster;
+                rosterIndex++;
+                if (name.equals(fromOnline)) {
+                    onlineIndex++;
+                }
+            } else {
+                name = fromOnline;
+                onlineIndex++;
+                final boolean inRoster = roster.get(name) != null;
+                if (excludeRosterEntries && inRoster) {
+                    continue;
+                }
+                if (requireDistanceOverride && !(inRoster && roster.get(name).hasDistanceOverride())) {
+                    continue;
+                }
             }
+            builder.suggest(name);
+            suggested++;
         }
-
-        toAdd.forEach(builder::suggest);
-        return builder.buildFuture();
-    }
-
-    private boolean playerEntryHasKey(String playerName) {
-        return configFile == null || configFile.getSectionData(playerName).containsKey(keyToCheck);
+        return builder.build();
     }
 }
@@ -0,0 +1,37 @@
+package io.github.heliguy4599.scarify;
+
+import net.minecraft.entity.player.PlayerEntity;
+
+// A scary player, as the FleeThreat it is for the tick snapshot it was captured in
+public class PlayerThreat implements FleeThreat {
+	public final PlayerEntity player;
+
+	public PlayerThreat(PlayerEntity player) {
+		this.player = player;
+	}
+
+	@Override
+	public int getId() {
+		return player.getId();
+	}
+
+	@Override
+	public double getX() {
+		return player.getX();
+	}
+
+	@Override
+	public double getY() {
+		return player.getY();
+	}
+
+	@Override
+	public double getZ() {
+		return player.getZ();
+	}
+
+	@Override
+	public boolean isAlive() {
+		return player.isAlive();
+	}
+}
@@ -4,23 +4,39 @@ import io.github.heliguy4599.scarify.mixin.MobGoalSelectorAccessor;
 import net.fabricmc.api.ModInitializer;
 
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerEntityEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerWorldEvents;
 import net.fabricmc.fabric.api.gamerule.v1.GameRuleFactory;
 import net.fabricmc.fabric.api.gamerule.v1.GameRuleRegistry;
+import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
 import net.fabricmc.loader.api.FabricLoader;
 import net.minecraft.entity.Tameable;
 import net.minecraft.entity.mob.MobEntity;
 import net.minecraft.entity.mob.PathAwareEntity;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.world.GameRules;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
 
 public class Scarify implements ModInitializer {
 	public static final String MOD_ID = "scarify";
 	public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
 	public static Path MOD_CONFIG_PATH;
 	public static ConfigFile configFile;
+	public static ConfigPersistence configPersistence;
+	// Only set in binary roster mode
+	@Nullable
+	public static BinaryRosterStorage rosterStorage;
+	// Only set in world roster mode, while a server is running
+	@Nullable
+	private static WorldRosterState worldRoster;
+	private static ConfigWatcher configWatcher;
 
 	public static final GameRules.Key<GameRules.BooleanRule> ENABLE_SCARIFY = GameRuleRegistry.register(
 		"enableScarify",
@@ -28,35 +44,212 @@ public class Scarify implements ModInitializer {
 		GameRuleFactory.createBooleanRule(true)
 	);
 
+	// Microseconds per world tick that flee goals may spend deciding whether to flee
+	public static final GameRules.Key<GameRules.IntRule> EVALUATION_BUDGET = GameRuleRegistry.register(
+		"scarifyEvaluationBudget",
+		GameRules.Category.PLAYER,
+		GameRuleFactory.createIntRule(2000, 1)
+	);
+
+	// Line-of-sight raycasts flee goals may do per world tick. Goals over the limit try again next tick.
+	public static final GameRules.Key<GameRules.IntRule> RAYCAST_BUDGET = GameRuleRegistry.register(
+		"scarifyRaycastBudget",
+		GameRules.Category.PLAYER,
+		GameRuleFactory.createIntRule(200, 1)
+	);
+
+	// Flee path searches per world tick, and the microseconds they may take together
+	public static final GameRules.Key<GameRules.IntRule> PATH_BUDGET = GameRuleRegistry.register(
+		"scarifyPathBudget",
+		GameRules.Category.PLAYER,
+		GameRuleFactory.createIntRule(10, 1)
+	);
+	public static final GameRules.Key<GameRules.IntRule> PATH_BUDGET_MICROS = GameRuleRegistry.register(
+		"scarifyPathBudgetMicros",
+		GameRules.Category.PLAYER,
+		GameRuleFactory.createIntRule(5000, 1)
+	);
+
+	// Scary players mark the mobs around them every few ticks, and only marked mobs look for threats.
+	// Cheaper when mobs far outnumber scary players.
+	public static final GameRules.Key<GameRules.BooleanRule> PUSH_PROPAGATION = GameRuleRegistry.register(
+		"scarifyPushPropagation",
+		GameRules.Category.PLAYER,
+		GameRuleFactory.createBooleanRule(false)
+	);
+
+	// Fleeing mobs follow a distance field computed around each scary player, instead of searching for a path each.
+	// Mobs the field can't help, like ones indoors, still search.
+	public static final GameRules.Key<GameRules.BooleanRule> FLOW_FIELDS = GameRuleRegistry.register(
+		"scarifyFlowFields",
+		GameRules.Category.PLAYER,
+		GameRuleFactory.createBooleanRule(false)
+	);
+
+	// The nearest scary player to each mob due to evaluate is found on worker threads at the start of the tick,
+	// leaving only line of sight to check on the server thread
+	public static final GameRules.Key<GameRules.BooleanRule> PARALLEL_THREAT_SELECTION = GameRuleRegistry.register(
+		"scarifyParallelThreatSelection",
+		GameRules.Category.PLAYER,
+		GameRuleFactory.createBooleanRule(false)
+	);
+
 	public static boolean getIsPehkuiLoaded() {
-		return FabricLoader.getInstance().isModLoaded("pehkui");
+		return PehkuiCompat.isLoaded();
+	}
+
+	// Where commands change the roster: the world's roster in world roster mode, scarify.cfg otherwise
+	public static ConfigFile getRosterConfig() {
+		return worldRoster != null ? worldRoster.getRoster() : configFile;
+	}
+
+	// Call on the server thread after applying mutations to getRosterConfig()
+	public static void recordChanges(MinecraftServer server, List<ConfigMutation> mutations) {
+		if (worldRoster != null) {
+			// Written with the world's next save
+			worldRoster.markDirty();
+		} else {
+			configPersistence.recordChanges(server, mutations);
+		}
+	}
+
+	@Nullable
+	public static MappedRoster getRosterBase() {
+		return rosterStorage == null ? null : rosterStorage.getBase();
+	}
+
+	// Recompiles the roster goals read from. Call after every change to the config.
+	public static void refreshRoster(MinecraftServer server) {
+		ScaryRoster.publish(ScaryRoster.compile(getRosterConfig(), getRosterBase(), server.getPlayerManager().getPlayerList()));
+	}
+
+	// Updates only the named players in the roster
+	public static void refreshRoster(MinecraftServer server, Collection<String> changedNames) {
+		final var playerManager = server.getPlayerManager();
+		final var roster = ScaryRoster.get().withSections(getRosterConfig(), changedNames, name -> {
+			final var player = playerManager.getPlayer(name);
+			return player == null ? null : player.getUuid();
+		});
+		ScaryRoster.publish(roster, changedNames);
+		if (rosterStorage != null && rosterStorage.needsCompaction(configFile)) {
+			rosterStorage.compactInBackground(roster, configFile, configPersistence.getWriter(), server, () -> {
+				refreshRoster(server);
+				configPersistence.requestSave(server);
+			});
+		}
+	}
+
+	// In binary roster mode, maps the roster file, converting the config's players into one if there isn't one yet.
+	// Otherwise a roster file left over from binary mode is converted back into the config.
+	private static void loadRosterStorage() {
+		final Path rosterPath = BinaryRosterStorage.pathFor(MOD_CONFIG_PATH);
+		if (!BinaryRosterStorage.isEnabled(configFile)) {
+			BinaryRosterStorage.unpack(rosterPath, configFile, MOD_CONFIG_PATH);
+			return;
+		}
+		rosterStorage = new BinaryRosterStorage(rosterPath);
+		rosterStorage.open();
+		if (rosterStorage.needsCompaction(configFile) && rosterStorage.compact(ScaryRoster.compile(configFile, rosterStorage.getBase(), List.of()), configFile)) {
+			configFile.saveToFile(MOD_CONFIG_PATH);
+		}
+	}
+
+	// Replays any journal over the loaded config. Without useJournal, a leftover journal is folded back into the file.
+	// Binary roster mode doesn't use the journal, since the config it saves only holds recent changes.
+	private static ConfigPersistence loadJournalAndPersistence() {
+		boolean useJournal = configFile.findBoolean("", "useJournal", false);
+		if (useJournal && BinaryRosterStorage.isEnabled(configFile)) {
+			LOGGER.warn("useJournal is ignored with the binary roster format");
+			useJournal = false;
+		}
+		final var journal = new ConfigJournal(ConfigJournal.pathFor(MOD_CONFIG_PATH));
+		final int replayed = journal.replay(configFile, true);
+		if (replayed > 0) {
+			LOGGER.info("Replayed " + replayed + " changes from the Scarify config journal");
+		}
+
+		if (!useJournal) {
+			if (replayed > 0 && configFile.saveToFile(MOD_CONFIG_PATH)) {
+				journal.clear();
+			}
+			return new ConfigPersistence(configFile, MOD_CONFIG_PATH, null);
+		}
+		final var persistence = new ConfigPersistence(configFile, MOD_CONFIG_PATH, journal);
+		persistence.compactOnStartup();
+		return persistence;
 	}
 
 	@Override
 	public void onInitialize() {
 		MOD_CONFIG_PATH = FabricLoader.getInstance().getConfigDir().resolve(MOD_ID + ".cfg");
 		configFile = ConfigFile.loadFromFile(MOD_CONFIG_PATH, false);
+		configPersistence = loadJournalAndPersistence();
+		loadRosterStorage();
+		PehkuiCompat.init();
 
 		final var commandinator = new Commandinator(configFile);
 		commandinator.registerCommands();
 
 		ServerEntityEvents.ENTITY_LOAD.register((entity, world) -> {
-			if (entity instanceof Tameable tEntity && tEntity.getOwner() != null) {
+			if (!(entity instanceof MobEntity mob) || configFile == null || !ScarifyEligibility.isEligible(mob)) {
+				return;
+			}
+			if (mob instanceof Tameable tMob && tMob.getOwner() != null) {
 				// Don't make tamed mobs scared
 				return;
 			}
-			if (entity instanceof MobEntity mob && configFile != null) {
-				injectFleePlayerGoal(mob);
+			injectFleePlayerGoal(mob);
+		});
+		ServerLifecycleEvents.END_DATA_PACK_RELOAD.register((server, resourceManager, success) -> ScarifyEligibility.clear());
+
+		ServerLifecycleEvents.SERVER_STARTED.register(server -> {
+			if (WorldRosterState.isEnabled(configFile)) {
+				worldRoster = WorldRosterState.load(server, configFile);
+			}
+			refreshRoster(server);
+			if (worldRoster == null) {
+				// Players in scarify.cfg aren't the roster in world roster mode, so there's nothing to reload
+				configWatcher = ConfigWatcher.start(server, MOD_CONFIG_PATH);
 			}
 		});
+		ServerLifecycleEvents.SERVER_STOPPING.register(server -> {
+			if (configWatcher != null) {
+				configWatcher.stop();
+				configWatcher = null;
+			}
+			configPersistence.flush();
+		});
+		ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+			ScaryRoster.publish(ScaryRoster.EMPTY);
+			PlayerSuggestion.clearOnlinePlayers();
+			worldRoster = null;
+		});
+		ServerPlayConnectionEvents.JOIN.register((handler, sender, server) -> {
+			PlayerSuggestion.onPlayerJoin(handler.player.getGameProfile().getName());
+			final var roster = ScaryRoster.get();
+			final var boundRoster = roster.bind(handler.player);
+			if (boundRoster != roster) {
+				ScaryRoster.publish(boundRoster, List.of(handler.player.getGameProfile().getName()));
+			}
+		});
+		ServerPlayConnectionEvents.DISCONNECT.register(
+			(handler, server) -> PlayerSuggestion.onPlayerLeave(handler.player.getGameProfile().getName())
+		);
+
+		// Capture the scary players once per tick, instead of once per mob
+		ServerTickEvents.START_WORLD_TICK.register(world -> ScarifyWorldState.get(world).onStartTick());
+		ServerWorldEvents.UNLOAD.register((server, world) -> ScarifyWorldState.unload(world));
 	}
 
-	private void injectFleePlayerGoal(MobEntity mob) {
-		if (mob instanceof MobGoalSelectorAccessor accessMob && accessMob instanceof PathAwareEntity paMob) {
-			var goalSelector = accessMob.getGoalSelector();
-			goalSelector.getGoals().removeIf(goal -> goal.getGoal() instanceof FleeFromPlayerGoal);
-			var goal = new FleeFromPlayerGoal(paMob, configFile);
-			goalSelector.add(0, goal);
+	// Only called for eligible mobs, which are all PathAwareEntity
+	private static void injectFleePlayerGoal(MobEntity mob) {
+		final var scarifyMob = (ScarifyMob) mob;
+		if (scarifyMob.scarify$getFleeGoal() != null) {
+			// Already injected, no need to look through its goals again
+			return;
 		}
+		final var goal = new FleeFromPlayerGoal((PathAwareEntity) mob);
+		((MobGoalSelectorAccessor) mob).getGoalSelector().add(0, goal);
+		scarifyMob.scarify$setFleeGoal(goal);
 	}
-}
\ No newline at end of file
+}
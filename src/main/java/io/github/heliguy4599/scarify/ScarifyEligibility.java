@@ -0,0 +1,34 @@
+package io.github.heliguy4599.scarify;
+
+import it.unimi.dsi.fastutil.objects.Reference2BooleanOpenHashMap;
+import net.minecraft.entity.EntityType;
+import net.minecraft.entity.mob.MobEntity;
+import net.minecraft.entity.mob.PathAwareEntity;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+
+// Decides once per entity type whether its mobs can be scared, instead of once per loaded mob.
+// Mobs must be able to path, and their type must not be in the scarify:unscarable tag.
+public class ScarifyEligibility {
+	public static final TagKey<EntityType<?>> UNSCARABLE = TagKey.of(RegistryKeys.ENTITY_TYPE, new Identifier(Scarify.MOD_ID, "unscarable"));
+
+	// Only touched from the server thread
+	private static final Reference2BooleanOpenHashMap<EntityType<?>> eligibleTypes = new Reference2BooleanOpenHashMap<>();
+
+	public static boolean isEligible(MobEntity mob) {
+		final EntityType<?> type = mob.getType();
+		if (eligibleTypes.containsKey(type)) {
+			return eligibleTypes.getBoolean(type);
+		}
+		// Every mob of a type shares its class, so the first one speaks for the rest
+		final boolean eligible = mob instanceof PathAwareEntity && !type.isIn(UNSCARABLE);
+		eligibleTypes.put(type, eligible);
+		return eligible;
+	}
+
+	// Tags can change when data packs reload
+	public static void clear() {
+		eligibleTypes.clear();
+	}
+}
@@ -0,0 +1,11 @@
+package io.github.heliguy4599.scarify;
+
+import org.jetbrains.annotations.Nullable;
+
+// Implemented on every MobEntity by MobEntityMixin, so a mob remembers the flee goal Scarify gave it
+public interface ScarifyMob {
+	@Nullable
+	FleeFromPlayerGoal scarify$getFleeGoal();
+
+	void scarify$setFleeGoal(FleeFromPlayerGoal goal);
+}
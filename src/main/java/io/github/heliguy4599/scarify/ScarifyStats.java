@@ -0,0 +1,121 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.Arrays;
+
+// Counters for /scarify stats. Off by default, and every record call returns right away while disabled.
+// Only touched from the server thread.
+public class ScarifyStats {
+	// What a flee goal evaluation ended with
+	public enum Outcome {
+		// Also reported later, when a mob takes up the path its queued search found
+		FLEE,
+		TAMED,
+		NO_PLAYER,
+		NO_FLEE_TARGET,
+		WAITING_FOR_PATH,
+		// Reported later, when a queued path search comes back empty
+		NO_PATH
+	}
+
+	public static boolean enabled = false;
+
+	private static long evaluations = 0;
+	private static final long[] outcomes = new long[Outcome.values().length];
+	private static long playerScans = 0;
+	private static long raycasts = 0;
+	private static long pathSearches = 0;
+	private static long pathRepairs = 0;
+
+	public static void recordEvaluation(FleeMob mob, Outcome outcome, long nanos) {
+		if (!enabled) {
+			return;
+		}
+		evaluations++;
+		outcomes[outcome.ordinal()]++;
+
+		final var event = new FleeEvaluationEvent();
+		if (event.shouldCommit()) {
+			event.mobType = mob.getKindName();
+			event.outcome = outcome.name();
+			event.evaluationTime = nanos;
+			event.commit();
+		}
+	}
+
+	public static void recordOutcome(Outcome outcome) {
+		if (enabled) {
+			outcomes[outcome.ordinal()]++;
+		}
+	}
+
+	public static void recordPlayerScan() {
+		if (enabled) {
+			playerScans++;
+		}
+	}
+
+	public static void recordRaycast() {
+		if (enabled) {
+			raycasts++;
+		}
+	}
+
+	public static void recordPathSearch() {
+		if (enabled) {
+			pathSearches++;
+		}
+	}
+
+	public static void recordPathRepair() {
+		if (enabled) {
+			pathRepairs++;
+		}
+	}
+
+	public static void recordWorldTick(ScarifyWorldState state, long nanos) {
+		if (!enabled) {
+			return;
+		}
+		state.tickTimes.record(nanos);
+
+		final var event = new WorldTickEvent();
+		if (event.shouldCommit()) {
+			event.world = state.world.getRegistryKey().getValue().toString();
+			event.scarifyTime = nanos;
+			event.commit();
+		}
+	}
+
+	public static void reset() {
+		evaluations = 0;
+		Arrays.fill(outcomes, 0);
+		playerScans = 0;
+		raycasts = 0;
+		pathSearches = 0;
+		pathRepairs = 0;
+	}
+
+	public static long getEvaluations() {
+		return evaluations;
+	}
+
+	public static long getOutcomeCount(Outcome outcome) {
+		return outcomes[outcome.ordinal()];
+	}
+
+	public static long getPlayerScans() {
+		return playerScans;
+	}
+
+	public static long getRaycasts() {
+		return raycasts;
+	}
+
+	public static long getPathSearches() {
+		return pathSearches;
+	}
+
+	public static long getPathRepairs() {
+		return pathRepairs;
+	}
+}
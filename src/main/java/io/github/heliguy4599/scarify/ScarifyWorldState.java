@@ -0,0 +1,71 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
+
+// Per-world state Scarify keeps between ticks. Only touched from the server thread.
+public class ScarifyWorldState extends FleeEngine {
+	private static final Map<ServerWorld, ScarifyWorldState> STATES = new IdentityHashMap<>();
+
+	public final ServerWorld world;
+	private final ServerFleeWorld fleeWorld;
+	// The id per-dimension distance overrides are stored under
+	private final String dimensionId;
+	// Nanoseconds Scarify spent on this world per tick, only recorded while stats are enabled
+	public final TickTimeHistogram tickTimes = new TickTimeHistogram();
+	private long startTickNanos = 0;
+	private boolean ticked = false;
+
+	private ScarifyWorldState(ServerWorld world) {
+		this.world = world;
+		this.fleeWorld = new ServerFleeWorld(world);
+		this.dimensionId = world.getRegistryKey().getValue().toString();
+	}
+
+	public static ScarifyWorldState get(ServerWorld world) {
+		return STATES.computeIfAbsent(world, ScarifyWorldState::new);
+	}
+
+	public static void unload(ServerWorld world) {
+		STATES.remove(world);
+	}
+
+	// Called before any entity in the world ticks
+	public void onStartTick() {
+		if (ticked) {
+			// The scheduler hasn't been reset yet, so it still holds the last tick's goal evaluations
+			ScarifyStats.recordWorldTick(this, startTickNanos + fleeScheduler.getSpentNanos());
+		}
+		ticked = true;
+		final long startTime = System.nanoTime();
+
+		// The snapshot skips players who can't scare anything right now (creative, spectator, invisible),
+		// so rebuilding it every tick picks up joins, leaves, dimension changes and roster changes without extra events.
+		scaryPlayers.clear();
+		if (world.getGameRules().getBoolean(Scarify.ENABLE_SCARIFY)) {
+			captureScaryPlayers(ScaryRoster.get());
+		}
+		onStartTick(fleeWorld);
+		startTickNanos = System.nanoTime() - startTime;
+	}
+
+	private void captureScaryPlayers(ScaryRoster roster) {
+		if (roster.size() == 0) {
+			// Nobody can be scary, don't bother looking at the players
+			return;
+		}
+		for (ServerPlayerEntity player : world.getPlayers()) {
+			if (player.isCreative() || player.isSpectator() || player.isInvisible()) {
+				continue;
+			}
+			final ScaryRoster.Entry entry = roster.get(player.getUuid());
+			if (entry == null) {
+				continue;
+			}
+			scaryPlayers.add(new PlayerThreat(player), entry.getDistanceOverride(dimensionId), FleeFromPlayerGoal.getVisibilityScale(player));
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.Arrays;
+
+// The scary players of one world, captured once at the start of each world tick.
+// Goals search this instead of walking the world's player list and the config themselves.
+public class ScaryPlayerSnapshot {
+	private final ThreatIndex index = new ThreatIndex();
+	private FleeThreat[] threats = new FleeThreat[4];
+
+	public void clear() {
+		// Don't keep players from the last tick alive
+		Arrays.fill(threats, 0, index.size(), null);
+		index.clear();
+	}
+
+	public void add(FleeThreat threat, double distanceOverride, double visibilityScale) {
+		final int i = index.add(threat.getX(), threat.getY(), threat.getZ(), distanceOverride, visibilityScale);
+		if (i == threats.length) {
+			threats = Arrays.copyOf(threats, i * 2);
+		}
+		threats[i] = threat;
+	}
+
+	public ThreatIndex getIndex() {
+		return index;
+	}
+
+	public boolean isEmpty() {
+		return index.size() == 0;
+	}
+
+	public FleeThreat getThreat(int index) {
+		return threats[index];
+	}
+}
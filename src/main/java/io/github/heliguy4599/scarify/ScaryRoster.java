@@ -0,0 +1,414 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import net.minecraft.entity.player.PlayerEntity;
+import org.jetbrains.annotations.Nullable;
+
+// Compiled, immutable view of the scary players in the config, and in the binary roster file under it if there is one.
+// Goals read the current roster through one volatile reference, and any change to the config publishes a new one.
+public final class ScaryRoster {
+	public static final class Entry {
+		public final String name;
+		// Null until a player with this name has been seen online
+		@Nullable
+		public final UUID uuid;
+		// Absolute flee distance in blocks, or NaN to use the mob's follow range
+		public final double distanceOverride;
+		// Overrides for single dimensions, by dimension id, which win over distanceOverride there
+		public final Map<String, Double> dimensionOverrides;
+
+		private Entry(String name, @Nullable UUID uuid, double distanceOverride, Map<String, Double> dimensionOverrides) {
+			this.name = name;
+			this.uuid = uuid;
+			this.distanceOverride = distanceOverride;
+			this.dimensionOverrides = dimensionOverrides;
+		}
+
+		private Entry withUuid(@Nullable UUID uuid) {
+			return new Entry(name, uuid, distanceOverride, dimensionOverrides);
+		}
+
+		// Any override at all, in any dimension
+		public boolean hasDistanceOverride() {
+			return !Double.isNaN(distanceOverride) || !dimensionOverrides.isEmpty();
+		}
+
+		// The override for one dimension, or for every dimension when it's null
+		public boolean hasDistanceOverride(@Nullable String dimension) {
+			return dimension == null ? !Double.isNaN(distanceOverride) : dimensionOverrides.containsKey(dimension);
+		}
+
+		public double getDistanceOverride(String dimension) {
+			final Double override = dimensionOverrides.get(dimension);
+			return override != null ? override : distanceOverride;
+		}
+
+		// The entry as a config section, the way it's written to scarify.cfg
+		public HashMap<String, Object> toSectionData() {
+			final HashMap<String, Object> data = new HashMap<>();
+			if (!Double.isNaN(distanceOverride)) {
+				data.put(ConfigMutation.DISTANCE_OVERRIDE_KEY, distanceOverride);
+			}
+			for (var override : dimensionOverrides.entrySet()) {
+				data.put(ConfigMutation.distanceOverrideKey(override.getKey()), override.getValue());
+			}
+			return data;
+		}
+	}
+
+	// Notified on the server thread whenever a new roster is published
+	public interface Listener {
+		// changedNames is null when the whole roster may have changed
+		void onRosterChanged(ScaryRoster roster, @Nullable Collection<String> changedNames);
+	}
+
+	public static final ScaryRoster EMPTY = new ScaryRoster(Map.of(), Map.of(), null, Set.of(), 0, NameIndex.EMPTY, NameIndex.EMPTY);
+	// Past this many changed names it's cheaper to sort the name indexes again than to patch them one name at a time
+	private static final int REINDEX_THRESHOLD = 64;
+	private static volatile ScaryRoster current = EMPTY;
+	private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	// Without a base, these hold every entry. With one, they only hold entries that changed since the base was written,
+	// and players who are online, so their lookups every tick don't go to the file.
+	private final Map<String, Entry> byName;
+	private final Map<UUID, Entry> byUuid;
+	@Nullable
+	private final MappedRoster base;
+	// Base entries removed since the base was written
+	private final Set<String> removed;
+	private final int size;
+	// Every name, and the names with a distance override, for command suggestions.
+	// With a base they're only built the first time they're asked for, since that reads every name in the file.
+	@Nullable
+	private volatile NameIndex names;
+	@Nullable
+	private volatile NameIndex overrideNames;
+
+	private ScaryRoster(
+		Map<String, Entry> byName,
+		Map<UUID, Entry> byUuid,
+		@Nullable MappedRoster base,
+		Set<String> removed,
+		int size,
+		@Nullable NameIndex names,
+		@Nullable NameIndex overrideNames
+	) {
+		this.byName = byName;
+		this.byUuid = byUuid;
+		this.base = base;
+		this.removed = removed;
+		this.size = size;
+		this.names = names;
+		this.overrideNames = overrideNames;
+	}
+
+	private static ScaryRoster indexed(Map<String, Entry> byName, Map<UUID, Entry> byUuid, @Nullable MappedRoster base, Set<String> removed) {
+		int size = byName.size();
+		if (base != null) {
+			size += base.size();
+			for (String name : removed) {
+				if (!byName.containsKey(name) && base.find(name) >= 0) {
+					size--;
+				}
+			}
+			for (String name : byName.keySet()) {
+				if (base.find(name) >= 0) {
+					size--;
+				}
+			}
+		}
+		final var roster = new ScaryRoster(Map.copyOf(byName), Map.copyOf(byUuid), base, Set.copyOf(removed), size, null, null);
+		if (base == null) {
+			roster.buildNameIndexes();
+		}
+		return roster;
+	}
+
+	public static ScaryRoster get() {
+		return current;
+	}
+
+	public static void publish(ScaryRoster roster) {
+		publish(roster, null);
+	}
+
+	public static void publish(ScaryRoster roster, @Nullable Collection<String> changedNames) {
+		current = roster;
+		for (Listener listener : listeners) {
+			listener.onRosterChanged(roster, changedNames);
+		}
+	}
+
+	public static void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	// Builds a roster from the config, binding the names of the given players to their UUIDs
+	public static ScaryRoster compile(ConfigFile configFile, Iterable<? extends PlayerEntity> onlinePlayers) {
+		return compile(configFile, null, onlinePlayers);
+	}
+
+	// Same, on top of a base roster file. The config then only holds the changes made since the base was written.
+	public static ScaryRoster compile(ConfigFile configFile, @Nullable MappedRoster base, Iterable<? extends PlayerEntity> onlinePlayers) {
+		final var byName = new HashMap<String, Entry>();
+		final var removed = new HashSet<String>();
+		for (String section : configFile.getSectionNames()) {
+			if (section.isEmpty()) {
+				// The global section isn't a player
+				continue;
+			}
+			final var sectionData = configFile.findSectionData(section);
+			if (isRemoved(sectionData)) {
+				removed.add(section);
+				continue;
+			}
+			byName.put(section, readEntry(section, findBaseUuid(base, section), sectionData));
+		}
+
+		final var byUuid = new HashMap<UUID, Entry>();
+		for (Entry entry : byName.values()) {
+			if (entry.uuid != null) {
+				byUuid.put(entry.uuid, entry);
+			}
+		}
+		final var unbound = new ScaryRoster(byName, byUuid, base, removed, 0, null, null);
+		for (PlayerEntity player : onlinePlayers) {
+			final Entry entry = unbound.get(player.getGameProfile().getName());
+			if (entry != null) {
+				if (entry.uuid != null && !entry.uuid.equals(player.getUuid())) {
+					byUuid.remove(entry.uuid);
+				}
+				final var bound = entry.withUuid(player.getUuid());
+				byName.put(bound.name, bound);
+				byUuid.put(bound.uuid, bound);
+			}
+		}
+		return indexed(byName, byUuid, base, removed);
+	}
+
+	// Returns a copy of this roster with only the named sections re-read from the config.
+	// Bindings are kept for existing names, and new names are bound with uuidLookup, which may return null.
+	public ScaryRoster withSections(ConfigFile configFile, Collection<String> names, Function<String, UUID> uuidLookup) {
+		final var newByName = new HashMap<>(byName);
+		final var newByUuid = new HashMap<>(byUuid);
+		final var newRemoved = new HashSet<>(removed);
+		int newSize = size;
+		final boolean patchIndexes = names.size() <= REINDEX_THRESHOLD && this.names != null && this.overrideNames != null;
+		NameIndex newNames = this.names;
+		NameIndex newOverrideNames = this.overrideNames;
+		for (String name : names) {
+			if (name.isEmpty()) {
+				continue;
+			}
+			final Entry before = get(name);
+			final Entry old = newByName.remove(name);
+			if (old != null && old.uuid != null) {
+				newByUuid.remove(old.uuid);
+			}
+			newRemoved.remove(name);
+			if (patchIndexes) {
+				newNames = newNames.without(name);
+				newOverrideNames = newOverrideNames.without(name);
+			}
+
+			final var sectionData = configFile.findSectionData(name);
+			Entry entry = null;
+			if (sectionData == null) {
+				// Back to what the base says, if there is one
+				final int index = base == null ? -1 : base.find(name);
+				if (index >= 0) {
+					entry = baseEntry(index, name);
+					if (old != null && old.uuid != null && !old.uuid.equals(entry.uuid)) {
+						entry = entry.withUuid(old.uuid);
+						newByName.put(name, entry);
+						newByUuid.put(entry.uuid, entry);
+					}
+				}
+			} else if (isRemoved(sectionData)) {
+				newRemoved.add(name);
+			} else {
+				UUID uuid = old != null && old.uuid != null ? old.uuid : uuidLookup.apply(name);
+				if (uuid == null) {
+					uuid = findBaseUuid(base, name);
+				}
+				entry = readEntry(name, uuid, sectionData);
+				newByName.put(name, entry);
+				if (uuid != null) {
+					newByUuid.put(uuid, entry);
+				}
+			}
+
+			newSize += (entry != null ? 1 : 0) - (before != null ? 1 : 0);
+			if (patchIndexes && entry != null) {
+				newNames = newNames.with(name);
+				if (entry.hasDistanceOverride()) {
+					newOverrideNames = newOverrideNames.with(name);
+				}
+			}
+		}
+		if (!patchIndexes) {
+			if (base == null) {
+				return indexed(newByName, newByUuid, null, newRemoved);
+			}
+			// Built again when they're next asked for
+			newNames = null;
+			newOverrideNames = null;
+		}
+		return new ScaryRoster(Map.copyOf(newByName), Map.copyOf(newByUuid), base, Set.copyOf(newRemoved), newSize, newNames, newOverrideNames);
+	}
+
+	// Returns a copy of this roster with the player's UUID bound to their name, or this roster if nothing changes
+	public ScaryRoster bind(PlayerEntity player) {
+		final String name = player.getGameProfile().getName();
+		final UUID uuid = player.getUuid();
+		final Entry entry = get(name);
+		if (entry == null || (uuid.equals(entry.uuid) && byUuid.containsKey(uuid))) {
+			return this;
+		}
+
+		final var newByName = new HashMap<>(byName);
+		final var newByUuid = new HashMap<>(byUuid);
+		if (entry.uuid != null) {
+			// The name now belongs to someone else
+			newByUuid.remove(entry.uuid);
+		}
+		final var bound = entry.withUuid(uuid);
+		newByName.put(name, bound);
+		newByUuid.put(uuid, bound);
+		// Binding doesn't change any names
+		return new ScaryRoster(Map.copyOf(newByName), Map.copyOf(newByUuid), base, removed, size, this.names, this.overrideNames);
+	}
+
+	@Nullable
+	public Entry get(UUID uuid) {
+		final Entry entry = byUuid.get(uuid);
+		if (entry != null || base == null) {
+			return entry;
+		}
+		final int index = base.findByUuid(uuid);
+		if (index < 0) {
+			return null;
+		}
+		final String name = base.getName(index);
+		if (name == null || removed.contains(name) || byName.containsKey(name)) {
+			// Changed since the base was written, and it would be in byUuid if this binding still held
+			return null;
+		}
+		// The roster file has no per-dimension overrides, players with any stay in the config
+		return new Entry(name, uuid, base.getDistanceOverride(index), Map.of());
+	}
+
+	@Nullable
+	public Entry get(String name) {
+		final Entry entry = byName.get(name);
+		if (entry != null || base == null || removed.contains(name)) {
+			return entry;
+		}
+		final int index = base.find(name);
+		return index < 0 ? null : baseEntry(index, name);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// Every entry, in no particular order
+	public void forEach(Consumer<Entry> action) {
+		byName.values().forEach(action);
+		if (base == null) {
+			return;
+		}
+		for (int i = 0; i < base.size(); i++) {
+			final String name = base.getName(i);
+			if (name != null && !removed.contains(name) && !byName.containsKey(name)) {
+				action.accept(baseEntry(i, name));
+			}
+		}
+	}
+
+	@Nullable
+	public MappedRoster getBase() {
+		return base;
+	}
+
+	public NameIndex getNames() {
+		NameIndex result = names;
+		if (result == null) {
+			buildNameIndexes();
+			result = names;
+		}
+		return result;
+	}
+
+	public NameIndex getOverrideNames() {
+		NameIndex result = overrideNames;
+		if (result == null) {
+			buildNameIndexes();
+			result = overrideNames;
+		}
+		return result;
+	}
+
+	// Two threads may both build them, which only wastes some work
+	private void buildNameIndexes() {
+		final var all = new ArrayList<String>(size);
+		final var overrides = new ArrayList<String>();
+		forEach(entry -> {
+			all.add(entry.name);
+			if (entry.hasDistanceOverride()) {
+				overrides.add(entry.name);
+			}
+		});
+		overrideNames = NameIndex.of(overrides);
+		names = NameIndex.of(all);
+	}
+
+	private Entry baseEntry(int index, String name) {
+		return new Entry(name, base.getUuid(index), base.getDistanceOverride(index), Map.of());
+	}
+
+	@Nullable
+	private static UUID findBaseUuid(@Nullable MappedRoster base, String name) {
+		if (base == null) {
+			return null;
+		}
+		final int index = base.find(name);
+		return index < 0 ? null : base.getUuid(index);
+	}
+
+	// A base entry that was removed stays in the config as a section marked removed, until the base is rewritten
+	private static boolean isRemoved(@Nullable Map<String, Object> sectionData) {
+		return sectionData != null && Boolean.TRUE.equals(sectionData.get(ConfigMutation.REMOVED_KEY));
+	}
+
+	private static Entry readEntry(String name, @Nullable UUID uuid, Map<String, Object> sectionData) {
+		double distanceOverride = Double.NaN;
+		Map<String, Double> dimensionOverrides = Map.of();
+		for (var value : sectionData.entrySet()) {
+			if (!(value.getValue() instanceof Number configDistance) || !value.getKey().startsWith(ConfigMutation.DISTANCE_OVERRIDE_KEY)) {
+				continue;
+			}
+			final String key = value.getKey();
+			if (key.length() == ConfigMutation.DISTANCE_OVERRIDE_KEY.length()) {
+				distanceOverride = configDistance.doubleValue();
+			} else if (key.charAt(ConfigMutation.DISTANCE_OVERRIDE_KEY.length()) == '.') {
+				if (dimensionOverrides.isEmpty()) {
+					dimensionOverrides = new HashMap<>();
+				}
+				dimensionOverrides.put(key.substring(ConfigMutation.DISTANCE_OVERRIDE_KEY.length() + 1), configDistance.doubleValue());
+			}
+		}
+		return new Entry(name, uuid, distanceOverride, Map.copyOf(dimensionOverrides));
+	}
+}
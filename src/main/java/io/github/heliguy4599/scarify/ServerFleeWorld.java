@@ -0,0 +1,115 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import net.minecraft.entity.mob.MobEntity;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.Util;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Box;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.util.math.Direction;
+import net.minecraft.world.Heightmap;
+
+// A server world's gamerules, tick time, mobs and terrain, as the FleeWorld its flee decisions run in
+public class ServerFleeWorld implements FleeWorld {
+	private static final Predicate<MobEntity> HAS_FLEE_GOAL = mob -> ((ScarifyMob) mob).scarify$getFleeGoal() != null;
+
+	private final ServerWorld world;
+
+	public ServerFleeWorld(ServerWorld world) {
+		this.world = world;
+	}
+
+	@Override
+	public long getTime() {
+		return world.getTime();
+	}
+
+	@Override
+	public long getServerTicks() {
+		return world.getServer().getTicks();
+	}
+
+	@Override
+	public float getTickTime() {
+		return world.getServer().getTickTime();
+	}
+
+	@Override
+	public int getEvaluationBudgetMicros() {
+		return world.getGameRules().getInt(Scarify.EVALUATION_BUDGET);
+	}
+
+	@Override
+	public int getRaycastBudget() {
+		return world.getGameRules().getInt(Scarify.RAYCAST_BUDGET);
+	}
+
+	@Override
+	public int getPathBudget() {
+		return world.getGameRules().getInt(Scarify.PATH_BUDGET);
+	}
+
+	@Override
+	public int getPathBudgetMicros() {
+		return world.getGameRules().getInt(Scarify.PATH_BUDGET_MICROS);
+	}
+
+	@Override
+	public boolean isPushPropagation() {
+		return world.getGameRules().getBoolean(Scarify.PUSH_PROPAGATION);
+	}
+
+	// Goes through the world's entity sections, so only the chunks around the point are looked at
+	@Override
+	public void forEachFleeMobNear(double x, double y, double z, double radius, Consumer<FleeDecision> action) {
+		final Box box = new Box(x - radius, y - radius, z - radius, x + radius, y + radius, z + radius);
+		for (MobEntity mob : world.getEntitiesByClass(MobEntity.class, box, HAS_FLEE_GOAL)) {
+			action.accept(((ScarifyMob) mob).scarify$getFleeGoal().getDecision());
+		}
+	}
+
+	@Override
+	public boolean isFlowFieldMode() {
+		return world.getGameRules().getBoolean(Scarify.FLOW_FIELDS);
+	}
+
+	@Override
+	public boolean isParallelThreatSelection() {
+		return world.getGameRules().getBoolean(Scarify.PARALLEL_THREAT_SELECTION);
+	}
+
+	// Reads the heightmap rather than the blocks, so it's the open surface, and water or lava on top counts as blocked
+	@Override
+	public void sampleSurface(int minX, int minZ, int size, int[] heights) {
+		final BlockPos.Mutable ground = new BlockPos.Mutable();
+		for (int dz = 0; dz < size; dz++) {
+			for (int dx = 0; dx < size; dx++) {
+				final int x = minX + dx;
+				final int z = minZ + dz;
+				final int i = dz * size + dx;
+				if (!world.isChunkLoaded(ChunkSectionPos.getSectionCoord(x), ChunkSectionPos.getSectionCoord(z))) {
+					heights[i] = FleeFlowField.BLOCKED;
+					continue;
+				}
+				final int top = world.getTopY(Heightmap.Type.MOTION_BLOCKING_NO_LEAVES, x, z);
+				ground.set(x, top - 1, z);
+				if (!world.getFluidState(ground).isEmpty()) {
+					heights[i] = FleeFlowField.BLOCKED;
+					continue;
+				}
+				// Fences and walls stick up above the block they're in, so mobs can't step onto them
+				final double height = world.getBlockState(ground).getCollisionShape(world, ground).getMax(Direction.Axis.Y);
+				heights[i] = height > 1.0 ? FleeFlowField.BLOCKED : top;
+			}
+		}
+	}
+
+	@Override
+	public Executor getBackgroundExecutor() {
+		return Util.getMainWorkerExecutor();
+	}
+}
@@ -0,0 +1,223 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.Arrays;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+
+// Flat view of the scary players in one world for a single tick.
+// Everything lives in primitive arrays so the per-mob search never boxes or allocates.
+public class ThreatIndex {
+	public interface Visibility {
+		VisibilityCache.Result canSee(int index);
+	}
+
+	// Returned by the visible player searches when a nearer player's visibility can't be told yet
+	public static final int DEFERRED = -2;
+
+	private int size = 0;
+	private double[] xs = new double[4];
+	private double[] ys = new double[4];
+	private double[] zs = new double[4];
+	// Squared distanceOverride, or NaN when the player scares at the mob's follow range
+	private double[] overridesSq = new double[4];
+	// Squared visibility scale, applied to the mob's follow range
+	private double[] scalesSq = new double[4];
+	private double maxOverrideSq = 0.0;
+	private double maxScaleSq = 0.0;
+
+	// Players bucketed by chunk column. Each cell holds the first player index, and next[] chains the rest.
+	private final Long2IntOpenHashMap cellHeads = new Long2IntOpenHashMap();
+	private int[] next = new int[4];
+
+	public ThreatIndex() {
+		cellHeads.defaultReturnValue(-1);
+	}
+
+	public void clear() {
+		size = 0;
+		maxOverrideSq = 0.0;
+		maxScaleSq = 0.0;
+		cellHeads.clear();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	// Makes this index hold the same players as another, in the same order
+	public void copyFrom(ThreatIndex other) {
+		clear();
+		if (xs.length < other.size) {
+			final int capacity = other.xs.length;
+			xs = new double[capacity];
+			ys = new double[capacity];
+			zs = new double[capacity];
+			overridesSq = new double[capacity];
+			scalesSq = new double[capacity];
+			next = new int[capacity];
+		}
+		size = other.size;
+		System.arraycopy(other.xs, 0, xs, 0, size);
+		System.arraycopy(other.ys, 0, ys, 0, size);
+		System.arraycopy(other.zs, 0, zs, 0, size);
+		System.arraycopy(other.overridesSq, 0, overridesSq, 0, size);
+		System.arraycopy(other.scalesSq, 0, scalesSq, 0, size);
+		System.arraycopy(other.next, 0, next, 0, size);
+		maxOverrideSq = other.maxOverrideSq;
+		maxScaleSq = other.maxScaleSq;
+		cellHeads.putAll(other.cellHeads);
+	}
+
+	public int add(double x, double y, double z, double distanceOverride, double visibilityScale) {
+		if (size == xs.length) {
+			final int capacity = size * 2;
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			zs = Arrays.copyOf(zs, capacity);
+			overridesSq = Arrays.copyOf(overridesSq, capacity);
+			scalesSq = Arrays.copyOf(scalesSq, capacity);
+			next = Arrays.copyOf(next, capacity);
+		}
+		xs[size] = x;
+		ys[size] = y;
+		zs[size] = z;
+		overridesSq[size] = distanceOverride * distanceOverride;
+		scalesSq[size] = visibilityScale * visibilityScale;
+		if (Double.isNaN(distanceOverride)) {
+			maxScaleSq = Math.max(maxScaleSq, scalesSq[size]);
+		} else {
+			maxOverrideSq = Math.max(maxOverrideSq, overridesSq[size]);
+		}
+
+		final long cell = cellKey(toCell(x), toCell(z));
+		next[size] = cellHeads.put(cell, size);
+		return size++;
+	}
+
+	public double getX(int index) {
+		return xs[index];
+	}
+
+	public double getY(int index) {
+		return ys[index];
+	}
+
+	public double getZ(int index) {
+		return zs[index];
+	}
+
+	// Squared radius at which the player at index scares a mob with the given follow range
+	public double getRadiusSq(int index, double followRange) {
+		final double overrideSq = overridesSq[index];
+		return Double.isNaN(overrideSq) ? followRange * followRange * scalesSq[index] : overrideSq;
+	}
+
+	// Furthest any player in the index can scare a mob with the given follow range
+	public double getMaxReach(double followRange) {
+		return Math.sqrt(Math.max(maxOverrideSq, followRange * followRange * maxScaleSq));
+	}
+
+	// Returns the index of the closest visible player whose flee radius contains the point, -1, or DEFERRED.
+	// Players are tried nearest first and the search stops at the first visible one, so visibility is checked as little as possible.
+	// It also stops at the first one whose visibility is deferred, since the mob might see them once it's known.
+	public int findNearest(double x, double y, double z, double followRange, Visibility visibility) {
+		return findNearestFrom(x, y, z, followRange, findNearestInRange(x, y, z, followRange), visibility);
+	}
+
+	// The closest player whose flee radius contains the point, visible or not, or -1.
+	// Only reads the index, so any number of threads can call it at once.
+	public int findNearestInRange(double x, double y, double z, double followRange) {
+		return findNearestAfter(x, y, z, followRange, -1.0, -1);
+	}
+
+	// findNearest(), given the result of findNearestInRange() for the same point, like one worked out ahead of time
+	public int findNearestFrom(double x, double y, double z, double followRange, int first, Visibility visibility) {
+		int candidate = first;
+		while (candidate >= 0) {
+			final VisibilityCache.Result result = visibility.canSee(candidate);
+			if (result == VisibilityCache.Result.VISIBLE) {
+				return candidate;
+			}
+			if (result == VisibilityCache.Result.DEFERRED) {
+				// Fleeing from someone further away could mean running towards this one
+				return DEFERRED;
+			}
+			candidate = findNearestAfter(x, y, z, followRange, distanceSq(candidate, x, y, z), candidate);
+		}
+		return -1;
+	}
+
+	// Nearest player in range that sorts after (afterDistanceSq, afterIndex), ordering by distance and then index.
+	// Only the cells within reach of the point are searched, unless there are fewer players than cells.
+	private int findNearestAfter(double x, double y, double z, double followRange, double afterDistanceSq, int afterIndex) {
+		if (size == 0) {
+			return -1;
+		}
+		final double reach = getMaxReach(followRange);
+		final int minCellX = toCell(x - reach);
+		final int maxCellX = toCell(x + reach);
+		final int minCellZ = toCell(z - reach);
+		final int maxCellZ = toCell(z + reach);
+		final long cellCount = ((long) maxCellX - minCellX + 1) * ((long) maxCellZ - minCellZ + 1);
+
+		int best = -1;
+		double bestDistanceSq = Double.POSITIVE_INFINITY;
+		if (cellCount >= size) {
+			for (int i = 0; i < size; i++) {
+				final double distanceSq = distanceSq(i, x, y, z);
+				if (isBetterCandidate(i, distanceSq, followRange, best, bestDistanceSq, afterDistanceSq, afterIndex)) {
+					best = i;
+					bestDistanceSq = distanceSq;
+				}
+			}
+			return best;
+		}
+
+		for (int cellX = minCellX; cellX <= maxCellX; cellX++) {
+			for (int cellZ = minCellZ; cellZ <= maxCellZ; cellZ++) {
+				for (int i = cellHeads.get(cellKey(cellX, cellZ)); i >= 0; i = next[i]) {
+					final double distanceSq = distanceSq(i, x, y, z);
+					if (isBetterCandidate(i, distanceSq, followRange, best, bestDistanceSq, afterDistanceSq, afterIndex)) {
+						best = i;
+						bestDistanceSq = distanceSq;
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	private boolean isBetterCandidate(
+		int index,
+		double distanceSq,
+		double followRange,
+		int best,
+		double bestDistanceSq,
+		double afterDistanceSq,
+		int afterIndex
+	) {
+		if (distanceSq >= getRadiusSq(index, followRange)) {
+			return false;
+		}
+		if (distanceSq < afterDistanceSq || (distanceSq == afterDistanceSq && index <= afterIndex)) {
+			// Already tried
+			return false;
+		}
+		return distanceSq < bestDistanceSq || (distanceSq == bestDistanceSq && index < best);
+	}
+
+	private double distanceSq(int index, double x, double y, double z) {
+		final double dx = xs[index] - x;
+		final double dy = ys[index] - y;
+		final double dz = zs[index] - z;
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private static int toCell(double coordinate) {
+		return (int) Math.floor(coordinate) >> 4;
+	}
+
+	private static long cellKey(int cellX, int cellZ) {
+		return (long) cellX & 0xFFFFFFFFL | ((long) cellZ & 0xFFFFFFFFL) << 32;
+	}
+}
@@ -0,0 +1,181 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+// Parallel threat selection, turned on with the scarifyParallelThreatSelection gamerule.
+// At the start of a tick, the scary players and the position of every mob due to evaluate are copied into a batch,
+// and workers find each mob's nearest player in range from the copy while the world gets on with its tick.
+// Evaluations then only check visibility, starting from that player. Results that aren't in yet, or for a mob
+// that has moved since, are ignored and the mob searches itself, so the answer is the same either way.
+public class ThreatSelector {
+	// No result for the mob, so it has to search itself
+	public static final int UNKNOWN = -2;
+	// Mobs per task handed to the workers
+	private static final int CHUNK_SIZE = 256;
+	// Goals ask to start every other tick, so a decision that hasn't asked for this long is fleeing or gone
+	private static final long TRACKING_TICKS = FleeScheduler.EVALUATION_INTERVAL;
+
+	private static class Batch {
+		final ThreatIndex index = new ThreatIndex();
+		long tick;
+		int size = 0;
+		FleeDecision[] decisions = new FleeDecision[CHUNK_SIZE];
+		double[] xs = new double[CHUNK_SIZE];
+		double[] ys = new double[CHUNK_SIZE];
+		double[] zs = new double[CHUNK_SIZE];
+		double[] followRanges = new double[CHUNK_SIZE];
+		// Written by the workers, and only read once the chunk holding it is done
+		int[] nearest = new int[CHUNK_SIZE];
+		final List<CompletableFuture<Void>> chunks = new ArrayList<>();
+
+		void add(FleeDecision decision) {
+			final FleeMob mob = decision.getMob();
+			if (size == decisions.length) {
+				final int capacity = size * 2;
+				decisions = Arrays.copyOf(decisions, capacity);
+				xs = Arrays.copyOf(xs, capacity);
+				ys = Arrays.copyOf(ys, capacity);
+				zs = Arrays.copyOf(zs, capacity);
+				followRanges = Arrays.copyOf(followRanges, capacity);
+				nearest = new int[capacity];
+			}
+			decisions[size] = decision;
+			xs[size] = mob.getX();
+			ys[size] = mob.getY();
+			zs[size] = mob.getZ();
+			followRanges[size] = mob.getFollowRange();
+			decision.selectionSlot = size;
+			size++;
+		}
+
+		void submit(Executor executor) {
+			for (int start = 0; start < size; start += CHUNK_SIZE) {
+				final int from = start;
+				final int to = Math.min(size, start + CHUNK_SIZE);
+				chunks.add(CompletableFuture.runAsync(() -> select(from, to), executor));
+			}
+		}
+
+		private void select(int from, int to) {
+			for (int i = from; i < to; i++) {
+				nearest[i] = index.findNearestInRange(xs[i], ys[i], zs[i], followRanges[i]);
+			}
+		}
+
+		boolean isDone() {
+			for (CompletableFuture<Void> chunk : chunks) {
+				if (!chunk.isDone()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		void reset() {
+			// Don't keep mobs from the last tick alive
+			Arrays.fill(decisions, 0, size, null);
+			size = 0;
+			chunks.clear();
+		}
+	}
+
+	private boolean enabled = false;
+	private long tick = 0;
+	// Decisions that have asked to start lately, so they're looked at again on the tick they're due
+	private final List<FleeDecision> tracked = new ArrayList<>();
+	private Batch current = new Batch();
+	// The last tick's batch, reused once its workers are done with it
+	private Batch previous = new Batch();
+
+	// Called once the snapshot holds this tick's threats and the scheduler and propagation have started the tick
+	public void onStartTick(FleeWorld world, FleeEngine engine) {
+		final boolean wasEnabled = enabled;
+		enabled = world.isParallelThreatSelection();
+		if (!enabled) {
+			if (wasEnabled) {
+				clear();
+			}
+			return;
+		}
+		// Same clock as the scheduler, and the one goal selectors poll by
+		tick = world.getServerTicks();
+
+		Batch batch = previous;
+		if (!batch.isDone()) {
+			// Still being worked on, leave it to finish and start another
+			batch = new Batch();
+		}
+		batch.reset();
+		previous = current;
+		current = batch;
+		batch.tick = tick;
+		batch.index.copyFrom(engine.scaryPlayers.getIndex());
+
+		tracked.removeIf(this::isStale);
+		for (FleeDecision decision : tracked) {
+			if (decision.needsThreatSelection(engine)) {
+				batch.add(decision);
+			}
+		}
+		batch.submit(world.getBackgroundExecutor());
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	// Called by a flee decision every time it asks to start
+	void track(FleeDecision decision) {
+		decision.selectionAskedTick = tick;
+		if (decision.selectionTracker != this) {
+			decision.selectionTracker = this;
+			tracked.add(decision);
+		}
+	}
+
+	private boolean isStale(FleeDecision decision) {
+		if (decision.selectionTracker != this) {
+			// Moved to another world
+			return true;
+		}
+		if (tick - decision.selectionAskedTick > TRACKING_TICKS) {
+			decision.selectionTracker = null;
+			return true;
+		}
+		return false;
+	}
+
+	// The nearest player in range this tick's batch found for the mob, -1 for nobody, or UNKNOWN
+	public int getNearestInRange(FleeDecision decision) {
+		final FleeMob mob = decision.getMob();
+		final Batch batch = current;
+		final int slot = decision.selectionSlot;
+		if (batch.tick != tick || slot < 0 || slot >= batch.size || batch.decisions[slot] != decision) {
+			return UNKNOWN;
+		}
+		if (!batch.chunks.get(slot / CHUNK_SIZE).isDone()) {
+			return UNKNOWN;
+		}
+		if (mob.getX() != batch.xs[slot] || mob.getY() != batch.ys[slot] || mob.getZ() != batch.zs[slot]) {
+			// Pushed around since the start of the tick
+			return UNKNOWN;
+		}
+		return batch.nearest[slot];
+	}
+
+	// Work still in flight finishes on its own and is dropped
+	public void clear() {
+		for (FleeDecision decision : tracked) {
+			if (decision.selectionTracker == this) {
+				decision.selectionTracker = null;
+			}
+		}
+		tracked.clear();
+		current = new Batch();
+		previous = new Batch();
+	}
+}
@@ -0,0 +1,54 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.Arrays;
+
+// Power-of-two histogram of nanosecond timings. Bucket i counts timings under 2^i microseconds that didn't fit bucket i - 1.
+public class TickTimeHistogram {
+	private static final int BUCKETS = 24;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count = 0;
+	private long totalNanos = 0;
+	private long maxNanos = 0;
+
+	public void record(long nanos) {
+		final long micros = Math.max(0, nanos / 1000);
+		final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		counts[bucket]++;
+		count++;
+		totalNanos += nanos;
+		maxNanos = Math.max(maxNanos, nanos);
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		totalNanos = 0;
+		maxNanos = 0;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMeanNanos() {
+		return count == 0 ? 0 : totalNanos / count;
+	}
+
+	public long getMaxNanos() {
+		return maxNanos;
+	}
+
+	// Upper bound, in microseconds, of the bucket holding the given percentile
+	public long getPercentileMicros(double percentile) {
+		final long target = (long) Math.ceil(count * percentile / 100.0);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= target && seen > 0) {
+				return 1L << i;
+			}
+		}
+		return 0;
+	}
+}
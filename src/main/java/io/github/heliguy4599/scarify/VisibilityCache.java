@@ -0,0 +1,76 @@
+package io.github.heliguy4599.scarify;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+// Remembers line-of-sight results between mobs and players for a few ticks, and caps how many raycasts a world does per tick.
+// A result is thrown out early once either side moves more than a block.
+public class VisibilityCache {
+	public enum Result {
+		VISIBLE,
+		HIDDEN,
+		// Over the raycast budget for this tick, try again next tick
+		DEFERRED
+	}
+
+	private static final int RESULT_LIFETIME_TICKS = 10;
+	private static final double MAX_MOVEMENT_SQ = 1.0;
+	private static final int CLEANUP_INTERVAL_TICKS = 100;
+
+	private static class Entry {
+		boolean visible;
+		long tick;
+		double mobX, mobY, mobZ;
+		double playerX, playerY, playerZ;
+	}
+
+	private final Long2ObjectOpenHashMap<Entry> entries = new Long2ObjectOpenHashMap<>();
+	private long tick = 0;
+	private int raycastBudget = 0;
+	private int raycastsThisTick = 0;
+
+	public void onStartTick(FleeWorld world) {
+		tick = world.getTime();
+		raycastBudget = world.getRaycastBudget();
+		raycastsThisTick = 0;
+		if (tick % CLEANUP_INTERVAL_TICKS == 0) {
+			entries.values().removeIf(entry -> tick - entry.tick > RESULT_LIFETIME_TICKS);
+		}
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public Result canSee(FleeMob mob, FleeThreat player) {
+		final long key = (long) mob.getId() << 32 | (player.getId() & 0xFFFFFFFFL);
+		Entry entry = entries.get(key);
+		if (entry != null && isFresh(entry, mob, player)) {
+			return entry.visible ? Result.VISIBLE : Result.HIDDEN;
+		}
+		if (raycastsThisTick >= raycastBudget) {
+			return Result.DEFERRED;
+		}
+		raycastsThisTick++;
+		ScarifyStats.recordRaycast();
+
+		if (entry == null) {
+			entry = new Entry();
+			entries.put(key, entry);
+		}
+		entry.visible = mob.canSee(player);
+		entry.tick = tick;
+		entry.mobX = mob.getX();
+		entry.mobY = mob.getY();
+		entry.mobZ = mob.getZ();
+		entry.playerX = player.getX();
+		entry.playerY = player.getY();
+		entry.playerZ = player.getZ();
+		return entry.visible ? Result.VISIBLE : Result.HIDDEN;
+	}
+
+	private boolean isFresh(Entry entry, FleeMob mob, FleeThreat player) {
+		return tick - entry.tick <= RESULT_LIFETIME_TICKS
+			&& mob.squaredDistanceTo(entry.mobX, entry.mobY, entry.mobZ) <= MAX_MOVEMENT_SQ
+			&& player.squaredDistanceTo(entry.playerX, entry.playerY, entry.playerZ) <= MAX_MOVEMENT_SQ;
+	}
+}
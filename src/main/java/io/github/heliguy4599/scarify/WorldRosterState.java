@@ -0,0 +1,87 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.PersistentState;
+
+// The world roster backend, turned on with rosterFormat="world" in the config's global section.
+// The roster is kept with the save instead of in scarify.cfg, so every save has its own. Commands only mark it dirty,
+// and the game writes it to data/scarify_roster.dat along with the rest of the world when it autosaves or stops.
+public class WorldRosterState extends PersistentState {
+	public static final String WORLD_FORMAT = "world";
+	private static final String ID = "scarify_roster";
+
+	// Player sections in the same shape as scarify.cfg's, so commands and the roster work on it the same way
+	private final ConfigFile roster;
+
+	private WorldRosterState(ConfigFile roster) {
+		this.roster = roster;
+	}
+
+	public static boolean isEnabled(ConfigFile configFile) {
+		return WORLD_FORMAT.equals(BinaryRosterStorage.getFormat(configFile));
+	}
+
+	// Loads the save's roster from the overworld's data. A save without one yet starts from the players in scarify.cfg.
+	public static WorldRosterState load(MinecraftServer server, ConfigFile configFile) {
+		return server.getOverworld().getPersistentStateManager().getOrCreate(
+			WorldRosterState::fromNbt,
+			() -> importConfig(configFile),
+			ID
+		);
+	}
+
+	private static WorldRosterState importConfig(ConfigFile configFile) {
+		final ConfigFile roster = new ConfigFile();
+		for (String section : configFile.getSectionNames()) {
+			if (!section.isEmpty()) {
+				roster.setSectionData(section, new HashMap<>(configFile.findSectionData(section)));
+			}
+		}
+		final var state = new WorldRosterState(roster);
+		state.markDirty();
+		Scarify.LOGGER.info("Imported " + roster.getSectionNames().size() + " players from " + Scarify.MOD_CONFIG_PATH.getFileName() + " into the world's roster");
+		return state;
+	}
+
+	public ConfigFile getRoster() {
+		return roster;
+	}
+
+	// Stored as a compound of players by name, each holding their overrides by config key
+	private static WorldRosterState fromNbt(NbtCompound nbt) {
+		final ConfigFile roster = new ConfigFile();
+		final NbtCompound players = nbt.getCompound("players");
+		for (String name : players.getKeys()) {
+			final NbtCompound player = players.getCompound(name);
+			final HashMap<String, Object> data = new HashMap<>();
+			for (String key : player.getKeys()) {
+				data.put(key, player.getDouble(key));
+			}
+			roster.setSectionData(name, data);
+		}
+		return new WorldRosterState(roster);
+	}
+
+	@Override
+	public NbtCompound writeNbt(NbtCompound nbt) {
+		final NbtCompound players = new NbtCompound();
+		for (String name : roster.getSectionNames()) {
+			if (name.isEmpty()) {
+				continue;
+			}
+			final NbtCompound player = new NbtCompound();
+			for (Map.Entry<String, Object> value : roster.findSectionData(name).entrySet()) {
+				if (value.getValue() instanceof Number number) {
+					player.putDouble(value.getKey(), number.doubleValue());
+				}
+			}
+			players.put(name, player);
+		}
+		nbt.put("players", players);
+		return nbt;
+	}
+}
@@ -0,0 +1,23 @@
+package io.github.heliguy4599.scarify;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// JFR event for the time Scarify spent on one world during one tick, emitted while /scarify stats is enabled
+@Name("scarify.WorldTick")
+@Label("Scarify World Tick")
+@Category("Scarify")
+@Description("Time Scarify spent on a world during one server tick")
+@StackTrace(false)
+public class WorldTickEvent extends jdk.jfr.Event {
+	@Label("World")
+	public String world;
+
+	@Label("Scarify Time")
+	@Timespan(Timespan.NANOSECONDS)
+	public long scarifyTime;
+}
@@ -0,0 +1,23 @@
+package io.github.heliguy4599.scarify.mixin;
+
+import io.github.heliguy4599.scarify.FleeFromPlayerGoal;
+import io.github.heliguy4599.scarify.ScarifyMob;
+import net.minecraft.entity.mob.MobEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+
+@Mixin(MobEntity.class)
+public abstract class MobEntityMixin implements ScarifyMob {
+	@Unique
+	private FleeFromPlayerGoal scarify$fleeGoal;
+
+	@Override
+	public FleeFromPlayerGoal scarify$getFleeGoal() {
+		return scarify$fleeGoal;
+	}
+
+	@Override
+	public void scarify$setFleeGoal(FleeFromPlayerGoal goal) {
+		scarify$fleeGoal = goal;
+	}
+}
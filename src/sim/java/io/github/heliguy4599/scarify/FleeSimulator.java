@@ -0,0 +1,191 @@
+package io.github.heliguy4599.scarify;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Drives the flee decision engine with synthetic mobs and players over many ticks, without a game or a network.
+// Everything random comes from the seed, and time budgets are off unless asked for, so a seed always plays out the same way.
+//
+// Options, as --name=value:
+//   seed (1), mobs (5000), players (200), ticks (1200), warmup (200), spread (512),
+//   timeOffset (1) for how far world time runs ahead of server ticks, which is 1 in worlds ticked after the overworld,
+//   raycastBudget (200), pathBudget (10), --timeBudgets to use the default time budgets,
+//   --push to have scary players mark the mobs around them instead of every mob looking,
+//   --flowFields to have fleeing mobs follow a field around each player instead of searching paths,
+//   and --parallel to find threats on a fork-join pool sized like the game's worker pool.
+//   Parallel runs still play out the same way, except that flow fields then finish whenever their workers get to them.
+public class FleeSimulator {
+	public static void main(String[] args) {
+		final Map<String, String> options = parseOptions(args);
+		final long seed = Long.parseLong(options.getOrDefault("seed", "1"));
+		final int mobCount = Integer.parseInt(options.getOrDefault("mobs", "5000"));
+		final int playerCount = Integer.parseInt(options.getOrDefault("players", "200"));
+		final int ticks = Integer.parseInt(options.getOrDefault("ticks", "1200"));
+		final int warmup = Integer.parseInt(options.getOrDefault("warmup", "200"));
+		final double spread = Double.parseDouble(options.getOrDefault("spread", "512"));
+		final boolean timeBudgets = options.containsKey("timeBudgets");
+		final boolean push = options.containsKey("push");
+		final boolean flowFields = options.containsKey("flowFields");
+		final boolean parallel = options.containsKey("parallel");
+		final long timeOffset = Long.parseLong(options.getOrDefault("timeOffset", "1"));
+
+		final SimWorld world = new SimWorld();
+		world.raycastBudget = Integer.parseInt(options.getOrDefault("raycastBudget", "200"));
+		world.pathBudget = Integer.parseInt(options.getOrDefault("pathBudget", "10"));
+		// Same defaults as the scarifyEvaluationBudget and scarifyPathBudgetMicros gamerules
+		world.evaluationBudgetMicros = timeBudgets ? 2000 : Integer.MAX_VALUE;
+		world.pathBudgetMicros = timeBudgets ? 5000 : Integer.MAX_VALUE;
+		world.pushPropagation = push;
+		world.flowFields = flowFields;
+		world.parallelThreatSelection = parallel;
+		if (parallel) {
+			world.backgroundExecutor = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+		}
+
+		final Random random = new Random(seed);
+		final SimPlayer[] players = new SimPlayer[playerCount];
+		for (int i = 0; i < playerCount; i++) {
+			final double distanceOverride = i % 4 == 0 ? 8.0 + random.nextInt(32) : Double.NaN;
+			players[i] = new SimPlayer(mobCount + i, spread, distanceOverride, new Random(random.nextLong()));
+		}
+		final SimMob[] mobs = new SimMob[mobCount];
+		for (int i = 0; i < mobCount; i++) {
+			mobs[i] = new SimMob(i, spread, seed, new Random(random.nextLong()));
+		}
+
+		System.out.printf(
+			"Simulating %d mobs and %d players over %d ticks (%d warmup) in %.0fx%.0f blocks, seed %d%s%s%s%s%n",
+			mobCount, playerCount, ticks, warmup, spread, spread, seed,
+			timeBudgets ? ", with time budgets" : "", push ? ", push propagation" : "", flowFields ? ", flow fields" : "",
+			parallel ? ", parallel threat selection" : ""
+		);
+
+		final var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		final long threadId = Thread.currentThread().getId();
+		final FleeEngine engine = new FleeEngine();
+		final long[] tickNanos = new long[ticks];
+		long allocatedBytes = 0;
+		long fleeingMobTicks = 0;
+		ScarifyStats.enabled = true;
+
+		for (int tick = 0; tick < warmup + ticks; tick++) {
+			if (tick == warmup) {
+				ScarifyStats.reset();
+			}
+			// Goals are polled by server ticks, world time only has to keep counting
+			world.serverTicks = tick;
+			world.time = tick + timeOffset;
+			for (SimPlayer player : players) {
+				player.tick();
+			}
+			world.indexMobs(mobs);
+
+			// Only the engine's own work is timed, not the simulated movement around it
+			final long allocatedBefore = threadBean.getThreadAllocatedBytes(threadId);
+			final long startTime = System.nanoTime();
+			engine.scaryPlayers.clear();
+			for (SimPlayer player : players) {
+				engine.scaryPlayers.add(player, player.distanceOverride, 1.0);
+			}
+			engine.onStartTick(world);
+			for (SimMob mob : mobs) {
+				mob.tickGoal(engine, tick);
+			}
+			final long elapsed = System.nanoTime() - startTime;
+			final long allocated = threadBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+			for (SimMob mob : mobs) {
+				mob.tickMovement();
+			}
+			if (tick >= warmup) {
+				tickNanos[tick - warmup] = elapsed;
+				allocatedBytes += allocated;
+				for (SimMob mob : mobs) {
+					if (mob.isFleeing()) {
+						fleeingMobTicks++;
+					}
+				}
+			}
+		}
+		ScarifyStats.enabled = false;
+
+		report(mobs, ticks, tickNanos, allocatedBytes, fleeingMobTicks);
+	}
+
+	private static void report(SimMob[] mobs, int ticks, long[] tickNanos, long allocatedBytes, long fleeingMobTicks) {
+		final long totalNanos = Arrays.stream(tickNanos).sum();
+		final double seconds = Math.max(totalNanos, 1) / 1.0e9;
+		final long mobTicks = (long) mobs.length * ticks;
+		System.out.printf("Throughput: %.0f mob ticks/s, %.0f evaluations/s%n", mobTicks / seconds, ScarifyStats.getEvaluations() / seconds);
+
+		final long[] sorted = tickNanos.clone();
+		Arrays.sort(sorted);
+		System.out.printf(
+			"Tick latency (microseconds): mean %.1f, p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+			totalNanos / 1000.0 / ticks,
+			percentile(sorted, 50.0),
+			percentile(sorted, 90.0),
+			percentile(sorted, 99.0),
+			percentile(sorted, 99.9),
+			sorted[sorted.length - 1] / 1000.0
+		);
+		System.out.printf(
+			"Allocation: %.0f bytes/tick, %.2f bytes/mob tick, %.1f MB/s%n",
+			(double) allocatedBytes / ticks,
+			(double) allocatedBytes / mobTicks,
+			allocatedBytes / seconds / (1024 * 1024)
+		);
+
+		System.out.printf(
+			"Work: %d evaluations, %d player scans, %d raycasts, %d path searches, %d path repairs, %.1f%% of mob ticks spent fleeing%n",
+			ScarifyStats.getEvaluations(),
+			ScarifyStats.getPlayerScans(),
+			ScarifyStats.getRaycasts(),
+			ScarifyStats.getPathSearches(),
+			ScarifyStats.getPathRepairs(),
+			100.0 * fleeingMobTicks / mobTicks
+		);
+		final StringBuilder outcomes = new StringBuilder("Outcomes:");
+		for (var outcome : ScarifyStats.Outcome.values()) {
+			outcomes.append(' ').append(outcome.name().toLowerCase()).append('=').append(ScarifyStats.getOutcomeCount(outcome));
+		}
+		System.out.println(outcomes);
+
+		// Runs with the same seed and options end with the same checksum, unless time budgets are on
+		long checksum = 17;
+		for (SimMob mob : mobs) {
+			checksum = checksum * 31 + Double.doubleToLongBits(mob.getX());
+			checksum = checksum * 31 + Double.doubleToLongBits(mob.getZ());
+		}
+		for (var outcome : ScarifyStats.Outcome.values()) {
+			checksum = checksum * 31 + ScarifyStats.getOutcomeCount(outcome);
+		}
+		System.out.printf("Checksum: %016x%n", checksum);
+	}
+
+	// Nearest-rank percentile of sorted nanosecond timings, in microseconds
+	private static double percentile(long[] sorted, double percentile) {
+		final int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))] / 1000.0;
+	}
+
+	private static Map<String, String> parseOptions(String[] args) {
+		final Map<String, String> options = new HashMap<>();
+		for (String arg : args) {
+			if (!arg.startsWith("--")) {
+				throw new IllegalArgumentException("Options look like --name=value, got " + arg);
+			}
+			final int equals = arg.indexOf('=');
+			if (equals < 0) {
+				options.put(arg.substring(2), "true");
+			} else {
+				options.put(arg.substring(2, equals), arg.substring(equals + 1));
+			}
+		}
+		return options;
+	}
+}
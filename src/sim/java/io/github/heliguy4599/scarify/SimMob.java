@@ -0,0 +1,209 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.minecraft.entity.ai.pathing.Path;
+import net.minecraft.entity.ai.pathing.PathNode;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Vec3d;
+import org.jetbrains.annotations.Nullable;
+
+// A synthetic mob on flat ground. Paths are straight lines of nodes and line of sight is a seeded coin flip,
+// so the simulator measures Scarify's own decision work rather than the game's pathfinding and raycasts.
+public class SimMob implements FleeMob, FleeNavigation {
+	static final String[] KINDS = {"sim:sheep", "sim:cow", "sim:pig", "sim:villager"};
+	static final int GROUND_Y = 64;
+	private static final double FOLLOW_RANGE = 16.0;
+	// One in this many flee target searches and path searches come back empty, like they do in rough terrain
+	private static final int FLEE_TARGET_MISS_ODDS = 10;
+	private static final int PATH_MISS_ODDS = 20;
+	// One in this many mob and player pairs can't see each other from where they stand
+	private static final int HIDDEN_ODDS = 8;
+
+	private final int id;
+	private final String kind;
+	private final boolean tamed;
+	private final long seed;
+	private final Random random;
+	private final FleeDecision decision = new FleeDecision(this);
+	private double x, y, z;
+	@Nullable
+	private Path path;
+	private boolean fleeing = false;
+
+	SimMob(int id, double spread, long seed, Random random) {
+		this.id = id;
+		this.seed = seed;
+		this.random = random;
+		this.kind = KINDS[random.nextInt(KINDS.length)];
+		this.tamed = random.nextInt(20) == 0;
+		this.x = Math.floor(random.nextDouble() * spread) + 0.5;
+		this.y = GROUND_Y;
+		this.z = Math.floor(random.nextDouble() * spread) + 0.5;
+	}
+
+	// Runs the flee goal the way a goal selector does: running goals are checked every tick and ticked every other tick,
+	// and idle goals get a canStart() every other tick, when server ticks plus the mob's id is even
+	void tickGoal(FleeEngine engine, long serverTicks) {
+		if (fleeing) {
+			if (!decision.shouldContinue()) {
+				decision.stop();
+				fleeing = false;
+			} else if ((serverTicks + id) % 2 == 0) {
+				decision.tick();
+			}
+		} else if ((serverTicks + id) % 2 == 0 && decision.canStart(engine)) {
+			decision.start();
+			fleeing = true;
+		}
+	}
+
+	// Walks one node of the current path, or wanders a little when there isn't one
+	void tickMovement() {
+		if (path != null && !path.isFinished()) {
+			final PathNode node = path.getCurrentNode();
+			x = node.x + 0.5;
+			z = node.z + 0.5;
+			path.next();
+		} else if (random.nextInt(10) == 0) {
+			x += random.nextInt(3) - 1;
+			z += random.nextInt(3) - 1;
+		}
+	}
+
+	FleeDecision getDecision() {
+		return decision;
+	}
+
+	boolean isFleeing() {
+		return fleeing;
+	}
+
+	@Override
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public double getX() {
+		return x;
+	}
+
+	@Override
+	public double getY() {
+		return y;
+	}
+
+	@Override
+	public double getZ() {
+		return z;
+	}
+
+	@Override
+	public boolean isAlive() {
+		return true;
+	}
+
+	@Override
+	public Object getKind() {
+		return kind;
+	}
+
+	@Override
+	public String getKindName() {
+		return kind;
+	}
+
+	@Override
+	public double getFollowRange() {
+		return FOLLOW_RANGE;
+	}
+
+	@Override
+	public double getFleeSpeed() {
+		return 1.55;
+	}
+
+	@Override
+	public boolean isTamed() {
+		return tamed;
+	}
+
+	// Stable for a pair while the mob stays within the same 8x8 area
+	@Override
+	public boolean canSee(FleeThreat threat) {
+		final long h = mix(seed ^ mix(id) ^ mix((long) threat.getId() << 32) ^ mix((long) Math.floor(x) >> 3 ^ (long) Math.floor(z) >> 3 << 20));
+		return Math.floorMod(h, HIDDEN_ODDS) != 0;
+	}
+
+	@Override
+	public FleeNavigation getNavigation() {
+		return this;
+	}
+
+	// Somewhere 8 to 16 blocks further away from the threat, within 45 degrees of straight away from it
+	@Override
+	@Nullable
+	public Vec3d findFleeTarget(FleeThreat threat) {
+		if (random.nextInt(FLEE_TARGET_MISS_ODDS) == 0) {
+			return null;
+		}
+		double angle = Math.atan2(z - threat.getZ(), x - threat.getX());
+		angle += (random.nextDouble() - 0.5) * Math.PI / 2.0;
+		final double distance = 8.0 + random.nextDouble() * 8.0;
+		return new Vec3d(x + Math.cos(angle) * distance, y, z + Math.sin(angle) * distance);
+	}
+
+	@Override
+	@Nullable
+	public Path findPathTo(Vec3d destination, int reachDistance) {
+		if (random.nextInt(PATH_MISS_ODDS) == 0) {
+			return null;
+		}
+		final int startX = (int) Math.floor(x);
+		final int startZ = (int) Math.floor(z);
+		final int endX = (int) Math.floor(destination.x);
+		final int endZ = (int) Math.floor(destination.z);
+		final int blockY = (int) Math.floor(y);
+		final int steps = Math.max(1, Math.max(Math.abs(endX - startX), Math.abs(endZ - startZ)));
+
+		final List<PathNode> nodes = new ArrayList<>(steps + 1);
+		for (int i = 0; i <= steps; i++) {
+			nodes.add(new PathNode(
+				startX + (int) Math.round((double) (endX - startX) * i / steps),
+				blockY,
+				startZ + (int) Math.round((double) (endZ - startZ) * i / steps)
+			));
+		}
+		return new Path(nodes, new BlockPos(endX, blockY, endZ), true);
+	}
+
+	@Override
+	public void startMovingAlong(Path path, double speed) {
+		this.path = path;
+	}
+
+	@Override
+	@Nullable
+	public Path getCurrentPath() {
+		return path;
+	}
+
+	@Override
+	public boolean isIdle() {
+		return path == null || path.isFinished();
+	}
+
+	@Override
+	public void stop() {
+		path = null;
+	}
+
+	private static long mix(long value) {
+		value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+		value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return value ^ (value >>> 33);
+	}
+}
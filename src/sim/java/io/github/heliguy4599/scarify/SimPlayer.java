@@ -0,0 +1,68 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.Random;
+
+// A synthetic scary player, walking between random waypoints at roughly walking speed
+public class SimPlayer implements FleeThreat {
+	private static final double SPEED = 0.22;
+
+	private final int id;
+	private final double spread;
+	private final Random random;
+	final double distanceOverride;
+	private double x, y, z;
+	private double waypointX, waypointZ;
+
+	SimPlayer(int id, double spread, double distanceOverride, Random random) {
+		this.id = id;
+		this.spread = spread;
+		this.distanceOverride = distanceOverride;
+		this.random = random;
+		this.x = random.nextDouble() * spread;
+		this.y = 64.0;
+		this.z = random.nextDouble() * spread;
+		pickWaypoint();
+	}
+
+	void tick() {
+		final double dx = waypointX - x;
+		final double dz = waypointZ - z;
+		final double distance = Math.sqrt(dx * dx + dz * dz);
+		if (distance < SPEED) {
+			pickWaypoint();
+			return;
+		}
+		x += dx / distance * SPEED;
+		z += dz / distance * SPEED;
+	}
+
+	private void pickWaypoint() {
+		waypointX = random.nextDouble() * spread;
+		waypointZ = random.nextDouble() * spread;
+	}
+
+	@Override
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public double getX() {
+		return x;
+	}
+
+	@Override
+	public double getY() {
+		return y;
+	}
+
+	@Override
+	public double getZ() {
+		return z;
+	}
+
+	@Override
+	public boolean isAlive() {
+		return true;
+	}
+}
@@ -0,0 +1,122 @@
+package io.github.heliguy4599.scarify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+// The simulated world's clock and budgets, its flat ground, and its mobs bucketed by chunk column like the game's entity sections
+public class SimWorld implements FleeWorld {
+	long time = 0;
+	long serverTicks = 0;
+	int evaluationBudgetMicros;
+	int raycastBudget;
+	int pathBudget;
+	int pathBudgetMicros;
+	boolean pushPropagation;
+	boolean flowFields;
+	boolean parallelThreatSelection;
+	// Runs work right away unless the simulator is asked for real threads
+	Executor backgroundExecutor = Runnable::run;
+	private final Map<Long, List<SimMob>> sections = new HashMap<>();
+
+	// Puts every mob in the section it's in now. Called after mobs move, outside the timed part of a tick.
+	void indexMobs(SimMob[] mobs) {
+		for (List<SimMob> section : sections.values()) {
+			section.clear();
+		}
+		for (SimMob mob : mobs) {
+			sections.computeIfAbsent(sectionKey(toSection(mob.getX()), toSection(mob.getZ())), key -> new ArrayList<>()).add(mob);
+		}
+	}
+
+	@Override
+	public long getTime() {
+		return time;
+	}
+
+	@Override
+	public long getServerTicks() {
+		return serverTicks;
+	}
+
+	// The simulated server is never behind
+	@Override
+	public float getTickTime() {
+		return 0.0F;
+	}
+
+	@Override
+	public int getEvaluationBudgetMicros() {
+		return evaluationBudgetMicros;
+	}
+
+	@Override
+	public int getRaycastBudget() {
+		return raycastBudget;
+	}
+
+	@Override
+	public int getPathBudget() {
+		return pathBudget;
+	}
+
+	@Override
+	public int getPathBudgetMicros() {
+		return pathBudgetMicros;
+	}
+
+	@Override
+	public boolean isPushPropagation() {
+		return pushPropagation;
+	}
+
+	@Override
+	public void forEachFleeMobNear(double x, double y, double z, double radius, Consumer<FleeDecision> action) {
+		for (int sectionX = toSection(x - radius); sectionX <= toSection(x + radius); sectionX++) {
+			for (int sectionZ = toSection(z - radius); sectionZ <= toSection(z + radius); sectionZ++) {
+				final List<SimMob> section = sections.get(sectionKey(sectionX, sectionZ));
+				if (section == null) {
+					continue;
+				}
+				for (SimMob mob : section) {
+					if (Math.abs(mob.getX() - x) <= radius && Math.abs(mob.getY() - y) <= radius && Math.abs(mob.getZ() - z) <= radius) {
+						action.accept(mob.getDecision());
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public boolean isFlowFieldMode() {
+		return flowFields;
+	}
+
+	// Flat ground everywhere, at the height the mobs stand at
+	@Override
+	public void sampleSurface(int minX, int minZ, int size, int[] heights) {
+		Arrays.fill(heights, 0, size * size, SimMob.GROUND_Y);
+	}
+
+	@Override
+	public boolean isParallelThreatSelection() {
+		return parallelThreatSelection;
+	}
+
+	@Override
+	public Executor getBackgroundExecutor() {
+		return backgroundExecutor;
+	}
+
+	private static int toSection(double coordinate) {
+		return (int) Math.floor(coordinate) >> 4;
+	}
+
+	private static long sectionKey(int sectionX, int sectionZ) {
+		return (long) sectionX & 0xFFFFFFFFL | ((long) sectionZ & 0xFFFFFFFFL) << 32;
+	}
+}